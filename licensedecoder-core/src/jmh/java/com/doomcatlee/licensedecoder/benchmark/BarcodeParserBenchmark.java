@@ -0,0 +1,65 @@
+package com.doomcatlee.licensedecoder.benchmark;
+
+import com.doomcatlee.licensedecoder.component.DriverLicense;
+import com.doomcatlee.licensedecoder.component.DriverLicenseJsonWriter;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of AAMVA text already read from a barcode, for a few issuers and versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarcodeParserBenchmark {
+
+    @Param({"OR_V1_COMMA_NAME", "CA_V3_GIVEN_NAMES", "NY_V8", "ON_V9_CANADA"})
+    public String sample;
+
+    private String barcode;
+    private EnumSet<AamvaElement> ageCheck;
+
+    @Setup
+    public void setUp() {
+        barcode = AamvaSamples.sample(sample);
+        ageCheck = EnumSet.of(AamvaElement.DOB, AamvaElement.LICENSE_EXPIRATION_DATE);
+    }
+
+    @Benchmark
+    public BarcodeParser construct() {
+        return new BarcodeParser(barcode);
+    }
+
+    @Benchmark
+    public HashMap<String, String> parserData() {
+        return new BarcodeParser(barcode).getData();
+    }
+
+    @Benchmark
+    public String licenseJson() {
+        return DriverLicenseJsonWriter.toJson(new DriverLicense(barcode));
+    }
+
+    @Benchmark
+    public String ageCheckJson() {
+        return DriverLicenseJsonWriter.toJson(new DriverLicense(barcode, ageCheck));
+    }
+}
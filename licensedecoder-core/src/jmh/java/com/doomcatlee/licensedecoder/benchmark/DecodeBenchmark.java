@@ -0,0 +1,115 @@
+package com.doomcatlee.licensedecoder.benchmark;
+
+import com.doomcatlee.licensedecoder.component.DecodeProfile;
+import com.doomcatlee.licensedecoder.component.DecodeProperties;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import com.doomcatlee.licensedecoder.handlers.BufferedImageLuminanceSource;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Barcode decoding, on its own (HybridBinarizer + MultiFormatReader) and end to end from the uploaded bytes.
+ *
+ *          pure    the barcode alone, as scanned or cropped
+ *          photo   the barcode in the middle of a 1920x1080 noisy frame, as taken with a phone
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"pure", "photo"})
+    public String scene;
+
+    @Param({"png", "jpg"})
+    public String format;
+
+    private LuminanceSource source;
+    private Map<DecodeHintType, Object> hints;
+    private byte[] upload;
+    private DriverLicenseComponent driverLicenseComponent;
+
+    @Setup
+    public void setUp() throws Exception {
+        BufferedImage barcode = AamvaSamples.render(AamvaSamples.sample("NY_V8"), 3);
+        BufferedImage image = scene.equals("photo") ? photo(barcode) : barcode;
+
+        source = new BufferedImageLuminanceSource(image);
+        hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.PDF_417));
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+
+        upload = AamvaSamples.encode(image, format);
+
+        // No result cache, every call decodes the image
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setCacheMaxEntries(0);
+        driverLicenseComponent = new DriverLicenseComponent(decodeProperties);
+
+        // Timing failures would be meaningless
+        binarizeAndRead();
+        if (decodeDriverLicense().contains("\"result\"")) {
+            throw new IllegalStateException("Sample does not decode: " + scene + " " + format);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        driverLicenseComponent.shutdown();
+    }
+
+    @Benchmark
+    public Result binarizeAndRead() throws Exception {
+        return new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+    }
+
+    @Benchmark
+    public String decodeDriverLicense() {
+        return driverLicenseComponent.decodeDriverLicense(upload, DecodeProfile.BALANCED);
+    }
+
+    private static BufferedImage photo(BufferedImage barcode) {
+        BufferedImage photo = new BufferedImage(1920, 1080, BufferedImage.TYPE_3BYTE_BGR);
+        // Uneven lighting from left to right, plus some sensor noise
+        Random random = new Random(42);
+        for (int y = 0; y < photo.getHeight(); y++) {
+            for (int x = 0; x < photo.getWidth(); x++) {
+                int gray = 140 + x * 60 / photo.getWidth() + random.nextInt(16);
+                photo.setRGB(x, y, (gray << 16) | (gray << 8) | gray);
+            }
+        }
+        Graphics2D graphics = photo.createGraphics();
+        graphics.drawImage(barcode, (photo.getWidth() - barcode.getWidth()) / 2,
+                (photo.getHeight() - barcode.getHeight()) / 2, null);
+        graphics.dispose();
+        return photo;
+    }
+}
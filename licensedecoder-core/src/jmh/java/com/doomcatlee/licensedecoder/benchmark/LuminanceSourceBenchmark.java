@@ -0,0 +1,79 @@
+package com.doomcatlee.licensedecoder.benchmark;
+
+import com.doomcatlee.licensedecoder.handlers.BufferedImageLuminanceSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of decoded images to luminance, per image type and size. The content does not matter,
+ * images are filled with random pixels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LuminanceSourceBenchmark {
+
+    // JPEG decodes to 3BYTE_BGR, PNG to 4BYTE_ABGR or 3BYTE_BGR, images drawn in memory are usually INT_*
+    @Param({"3BYTE_BGR", "4BYTE_ABGR", "INT_RGB", "INT_ARGB", "BYTE_GRAY"})
+    public String type;
+
+    @Param({"640x480", "1920x1080", "3000x2000"})
+    public String size;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        image = new BufferedImage(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), imageType(type));
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+            }
+        }
+    }
+
+    @Benchmark
+    public BufferedImageLuminanceSource construct() {
+        return new BufferedImageLuminanceSource(image);
+    }
+
+    @Benchmark
+    public byte[] matrix() {
+        return new BufferedImageLuminanceSource(image).getMatrix();
+    }
+
+    private static int imageType(String type) {
+        switch (type) {
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            case "4BYTE_ABGR":
+                return BufferedImage.TYPE_4BYTE_ABGR;
+            case "INT_RGB":
+                return BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            case "BYTE_GRAY":
+                return BufferedImage.TYPE_BYTE_GRAY;
+            default:
+                throw new IllegalArgumentException("Unknown image type: " + type);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.doomcatlee.licensedecoder.loadtest;
+
+import com.doomcatlee.licensedecoder.handlers.BarcodeImages;
+import com.google.zxing.WriterException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Renders AAMVA text as a PDF417 image degraded like a photo of a card: rotated, blurred, noisy and
+ * JPEG compressed. The clean barcode comes from BarcodeImages, shared with the unit tests.
+ */
+public final class BarcodeRenderer {
+
+    /**
+     * How a barcode is rendered.
+     *
+     *          moduleSize      pixels per barcode module, the resolution
+     *          rotation        degrees, clockwise
+     *          blur            gaussian blur sigma in pixels, 0 for none
+     *          noise           standard deviation of the gray noise added to each pixel, 0 for none
+     *          jpegQuality     1-100, 0 writes a PNG instead
+     */
+    public static final class Options {
+        public int moduleSize = 3;
+        public double rotation;
+        public double blur;
+        public double noise;
+        public int jpegQuality;
+
+        public String extension() {
+            return jpegQuality > 0 ? "jpg" : "png";
+        }
+    }
+
+    private BarcodeRenderer() {
+    }
+
+    public static BufferedImage render(String text, Options options, Random random) throws WriterException {
+        BufferedImage image = BarcodeImages.pure(text, options.moduleSize);
+        if (options.rotation != 0) {
+            image = rotate(image, options.rotation);
+        }
+        if (options.blur > 0) {
+            image = blur(image, options.blur);
+        }
+        if (options.noise > 0) {
+            addNoise(image, options.noise, random);
+        }
+        return image;
+    }
+
+    public static byte[] encode(BufferedImage image, Options options) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (options.jpegQuality <= 0) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(options.jpegQuality / 100f);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Rotated around its center onto a white canvas large enough to hold all of it
+    private static BufferedImage rotate(BufferedImage image, double degrees) {
+        double radians = Math.toRadians(degrees);
+        double sin = Math.abs(Math.sin(radians));
+        double cos = Math.abs(Math.cos(radians));
+        int width = (int) Math.ceil(image.getWidth() * cos + image.getHeight() * sin);
+        int height = (int) Math.ceil(image.getWidth() * sin + image.getHeight() * cos);
+
+        BufferedImage rotated = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = rotated.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.translate(width / 2.0, height / 2.0);
+        graphics.rotate(radians);
+        graphics.drawImage(image, -image.getWidth() / 2, -image.getHeight() / 2, null);
+        graphics.dispose();
+        return rotated;
+    }
+
+    private static BufferedImage blur(BufferedImage image, double sigma) {
+        int radius = (int) Math.ceil(sigma * 3);
+        int size = radius * 2 + 1;
+        float[] weights = new float[size];
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = (float) Math.exp(-((i - radius) * (i - radius)) / (2 * sigma * sigma));
+            sum += weights[i];
+        }
+        for (int i = 0; i < size; i++) {
+            weights[i] /= sum;
+        }
+
+        // Separable: horizontal then vertical pass, edges are left as they are
+        BufferedImage horizontal = new ConvolveOp(new Kernel(size, 1, weights), ConvolveOp.EDGE_NO_OP, null)
+                .filter(image, null);
+        return new ConvolveOp(new Kernel(1, size, weights), ConvolveOp.EDGE_NO_OP, null).filter(horizontal, null);
+    }
+
+    private static void addNoise(BufferedImage image, double sigma, Random random) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int delta = (int) Math.round(random.nextGaussian() * sigma);
+                int r = clamp(((rgb >> 16) & 0xFF) + delta);
+                int g = clamp(((rgb >> 8) & 0xFF) + delta);
+                int b = clamp((rgb & 0xFF) + delta);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
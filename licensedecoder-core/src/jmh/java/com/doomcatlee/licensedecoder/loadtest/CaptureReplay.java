@@ -0,0 +1,102 @@
+package com.doomcatlee.licensedecoder.loadtest;
+
+import com.doomcatlee.licensedecoder.component.DecodeCaptureStore;
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Outcome;
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Stage;
+import com.doomcatlee.licensedecoder.component.DecodeProfile;
+import com.doomcatlee.licensedecoder.component.DecodeProperties;
+import com.doomcatlee.licensedecoder.component.DecodeTrace;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the uploads captured by DecodeCaptureStore (decode.capture-enabled) through DriverLicenseComponent
+ * again and prints, for each of them, the stage timings when it was captured next to the replayed ones.
+ *
+ * Each capture is decoded iterations times and the median of every stage is reported, the first iterations
+ * also warm up the JIT. Captures are replayed with the profile they were uploaded with unless -profile is given.
+ *
+ * (ex) -dir ./captures -key $DECODE_CAPTURE_KEY -iterations 5 -profile thorough
+ */
+public final class CaptureReplay {
+
+    private CaptureReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        Path dir = Paths.get(options.get("dir", "./captures"));
+        byte[] key = DecodeCaptureStore.parseKey(options.get("key", System.getenv("DECODE_CAPTURE_KEY")));
+        int iterations = Integer.parseInt(options.get("iterations", "3"));
+        String profileName = options.get("profile", null);
+
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setCacheMaxEntries(0);
+        DriverLicenseComponent component = new DriverLicenseComponent(decodeProperties);
+
+        List<Path> captures = DecodeCaptureStore.list(dir);
+        System.out.printf("%d captures in %s, %d iterations each%n%n", captures.size(), dir, iterations);
+        long[] stageTotals = new long[Stage.values().length];
+        int stillFailing = 0;
+        try {
+            for (Path file : captures) {
+                DecodeCaptureStore.Capture capture = DecodeCaptureStore.read(file, key);
+                DecodeProfile profile = DecodeProfile.fromName(profileName, capture.getProfile());
+
+                DecodeTrace[] traces = new DecodeTrace[iterations];
+                long[] totals = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    traces[i] = component.decodeTraced(capture.getImage(), profile, capture.getFields());
+                    totals[i] = System.nanoTime() - start;
+                }
+                DecodeTrace last = traces[iterations - 1];
+                if (last.getOutcome() != Outcome.SUCCESS) {
+                    stillFailing++;
+                }
+
+                System.out.printf("%s  %d bytes, %s%n", file.getFileName(), capture.getImage().length, profile);
+                System.out.printf("    captured  %-17s %-28s %9.1f ms%n", capture.getOutcome(),
+                        capture.getStrategy() == null ? "-" : capture.getStrategy(), capture.getTotalNanos() / 1e6);
+                System.out.printf("    replayed  %-17s %-28s %9.1f ms%n", last.getOutcome(),
+                        last.getStrategy() == null ? "-" : last.getStrategy(), median(totals) / 1e6);
+                StringBuilder stages = new StringBuilder("    stages   ");
+                for (Stage stage : Stage.values()) {
+                    if (!capture.ran(stage) && !last.ran(stage)) {
+                        continue;
+                    }
+                    long[] nanos = new long[iterations];
+                    for (int i = 0; i < iterations; i++) {
+                        nanos[i] = traces[i].getNanos(stage);
+                    }
+                    long replayed = median(nanos);
+                    stageTotals[stage.ordinal()] += replayed;
+                    stages.append(String.format(" %s %.1f/%.1f", stage.name().toLowerCase(),
+                            capture.getNanos(stage) / 1e6, replayed / 1e6));
+                }
+                System.out.println(stages.append("  (captured/replayed ms)"));
+            }
+        } finally {
+            component.shutdown();
+        }
+
+        System.out.printf("%nStill failing: %d of %d%n", stillFailing, captures.size());
+        System.out.print("Replayed time by stage:");
+        for (Stage stage : Stage.values()) {
+            if (stageTotals[stage.ordinal()] > 0) {
+                System.out.printf(" %s %.1f ms", stage.name().toLowerCase(), stageTotals[stage.ordinal()] / 1e6);
+            }
+        }
+        System.out.println();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,87 @@
+package com.doomcatlee.licensedecoder.loadtest;
+
+import org.json.JSONObject;
+
+import java.awt.image.BufferedImage;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes a corpus of synthetic barcode images plus a manifest.ndjson, one line per image with the AAMVA
+ * payload it encodes, to replay with LoadDriver.
+ *
+ * Degradations are drawn uniformly from min:max ranges, the same seed gives the same corpus.
+ *
+ * (ex) -out target/corpus -count 500 -seed 7 -module-size 2:4 -rotation 0:4 -blur 0:1.2 -noise 0:12
+ *      -jpeg-quality 50:95 -png 0.2
+ */
+public final class CorpusGenerator {
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        Path out = Paths.get(options.get("out", "target/corpus"));
+        int count = Integer.parseInt(options.get("count", "200"));
+        Random random = new Random(Long.parseLong(options.get("seed", "1")));
+        double[] moduleSize = options.range("module-size", "2:4");
+        double[] rotation = options.range("rotation", "0:4");
+        double[] blur = options.range("blur", "0:1");
+        double[] noise = options.range("noise", "0:10");
+        double[] jpegQuality = options.range("jpeg-quality", "60:95");
+        double pngShare = Double.parseDouble(options.get("png", "0.2"));
+
+        Files.createDirectories(out);
+        SyntheticAamva generator = new SyntheticAamva(random);
+        long bytes = 0;
+        try (Writer manifest = Files.newBufferedWriter(out.resolve("manifest.ndjson"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                SyntheticAamva.Payload payload = generator.next();
+
+                BarcodeRenderer.Options render = new BarcodeRenderer.Options();
+                render.moduleSize = (int) Math.round(draw(random, moduleSize));
+                // Either way round, as cards are held
+                render.rotation = draw(random, rotation) * (random.nextBoolean() ? 1 : -1);
+                render.blur = draw(random, blur);
+                render.noise = draw(random, noise);
+                render.jpegQuality = random.nextDouble() < pngShare ? 0 : (int) Math.round(draw(random, jpegQuality));
+
+                BufferedImage image = BarcodeRenderer.render(payload.text, render, random);
+                byte[] encoded = BarcodeRenderer.encode(image, render);
+                String file = String.format("%06d.%s", i, render.extension());
+                Files.write(out.resolve(file), encoded);
+                bytes += encoded.length;
+
+                JSONObject line = new JSONObject()
+                        .put("file", file)
+                        .put("version", payload.version)
+                        .put("iin", payload.issuerIdentificationNumber)
+                        .put("nameFormat", payload.nameFormat.name())
+                        .put("moduleSize", render.moduleSize)
+                        .put("rotation", round(render.rotation))
+                        .put("blur", round(render.blur))
+                        .put("noise", round(render.noise))
+                        .put("jpegQuality", render.jpegQuality)
+                        .put("width", image.getWidth())
+                        .put("height", image.getHeight())
+                        .put("payload", payload.text);
+                manifest.write(line.toString());
+                manifest.write('\n');
+            }
+        }
+        System.out.printf("Wrote %d images (%.1f MB) and manifest.ndjson to %s%n", count, bytes / 1e6, out.toAbsolutePath());
+    }
+
+    private static double draw(Random random, double[] range) {
+        return range[0] + random.nextDouble() * (range[1] - range[0]);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,251 @@
+package com.doomcatlee.licensedecoder.loadtest;
+
+import com.doomcatlee.licensedecoder.component.DriverLicense;
+import com.doomcatlee.licensedecoder.component.DriverLicenseJsonWriter;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays a CorpusGenerator corpus against a running instance, concurrency uploads at a time, and reports
+ * throughput, latency percentiles and how many responses matched the license encoded in the image.
+ *
+ * Identical uploads are answered from the result cache, start the instance with decode.cache-max-entries=0
+ * to time decoding rather than the cache once the corpus wraps around.
+ *
+ * (ex) -corpus target/corpus -url http://localhost:9090/decodeDriverLicenseBarcode -user alex:lee
+ *      -concurrency 8 -requests 2000 -warmup 100 -profile balanced -fields dob,licenseExpirationDate
+ */
+public final class LoadDriver {
+
+    private static final String BOUNDARY = "----LoadDriverBoundary7MA4YWxkTrZu0gW";
+
+    private final URL url;
+    private final String authorization;
+    private final List<Sample> corpus;
+
+    LoadDriver(URL url, String authorization, List<Sample> corpus) {
+        this.url = url;
+        this.authorization = authorization;
+        this.corpus = corpus;
+    }
+
+    /**
+     * One corpus image and the JSON a correct decode answers with.
+     */
+    static final class Sample {
+        final String file;
+        final String contentType;
+        final byte[] image;
+        final String expected;
+
+        Sample(String file, byte[] image, String expected) {
+            this.file = file;
+            this.contentType = file.endsWith(".png") ? "image/png" : "image/jpeg";
+            this.image = image;
+            this.expected = expected;
+        }
+    }
+
+    enum Outcome { MATCH, MISMATCH, NOT_DECODED, HTTP_ERROR, IO_ERROR }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        Path corpusDir = Paths.get(options.get("corpus", "target/corpus"));
+        String fields = options.get("fields", null);
+        String profile = options.get("profile", null);
+        int concurrency = Integer.parseInt(options.get("concurrency", "8"));
+        int requests = Integer.parseInt(options.get("requests", "1000"));
+        int warmup = Integer.parseInt(options.get("warmup", "50"));
+
+        StringBuilder query = new StringBuilder();
+        if (profile != null) {
+            query.append("profile=").append(URLEncoder.encode(profile, "UTF-8"));
+        }
+        if (fields != null) {
+            query.append(query.length() > 0 ? "&" : "").append("fields=").append(URLEncoder.encode(fields, "UTF-8"));
+        }
+        String endpoint = options.get("url", "http://localhost:9090/decodeDriverLicenseBarcode");
+        URL url = new URL(query.length() > 0 ? endpoint + "?" + query : endpoint);
+        String authorization = "Basic " + Base64.getEncoder()
+                .encodeToString(options.get("user", "alex:lee").getBytes(StandardCharsets.UTF_8));
+
+        List<Sample> corpus = load(corpusDir, AamvaElement.parseFields(fields));
+        LoadDriver driver = new LoadDriver(url, authorization, corpus);
+
+        System.out.printf("%d images from %s, %d warmup + %d requests, concurrency %d, %s%n",
+                corpus.size(), corpusDir, warmup, requests, concurrency, url);
+        if (warmup > 0) {
+            driver.run(warmup, concurrency);
+        }
+        driver.run(requests, concurrency).print();
+    }
+
+    static List<Sample> load(Path corpusDir, EnumSet<AamvaElement> fields) throws IOException {
+        List<Sample> corpus = new ArrayList<>();
+        for (String line : Files.readAllLines(corpusDir.resolve("manifest.ndjson"), StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            JSONObject entry = new JSONObject(line);
+            String file = entry.getString("file");
+            String payload = entry.getString("payload");
+            String expected = DriverLicenseJsonWriter.toJson(fields == null
+                    ? new DriverLicense(payload)
+                    : new DriverLicense(payload, fields));
+            corpus.add(new Sample(file, Files.readAllBytes(corpusDir.resolve(file)), expected));
+        }
+        if (corpus.isEmpty()) {
+            throw new IllegalArgumentException("Empty corpus: " + corpusDir);
+        }
+        return corpus;
+    }
+
+    /**
+     * Send requests uploads over concurrency threads, walking the corpus round robin.
+     */
+    Report run(int requests, int concurrency) throws InterruptedException {
+        long[] latencies = new long[requests];
+        Outcome[] outcomes = new Outcome[requests];
+        AtomicInteger next = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            executor.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    Sample sample = corpus.get(i % corpus.size());
+                    long sent = System.nanoTime();
+                    outcomes[i] = send(sample);
+                    latencies[i] = System.nanoTime() - sent;
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return new Report(latencies, outcomes, System.nanoTime() - start, corpus);
+    }
+
+    private Outcome send(Sample sample) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Authorization", authorization);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+
+            byte[] head = ("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"" + sample.file + "\"\r\n"
+                    + "Content-Type: " + sample.contentType + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+            connection.setFixedLengthStreamingMode(head.length + sample.image.length + tail.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(head);
+                out.write(sample.image);
+                out.write(tail);
+            }
+
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                drain(connection.getErrorStream());
+                return Outcome.HTTP_ERROR;
+            }
+            String body = drain(connection.getInputStream());
+            if (body.equals(sample.expected)) {
+                return Outcome.MATCH;
+            }
+            return body.startsWith("{\"result\"") ? Outcome.NOT_DECODED : Outcome.MISMATCH;
+        } catch (IOException e) {
+            return Outcome.IO_ERROR;
+        }
+    }
+
+    // Reading to the end lets HttpURLConnection keep the connection alive for the next request
+    private static String drain(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static final class Report {
+        private final long[] latencies;
+        private final Outcome[] outcomes;
+        private final long elapsed;
+        private final List<Sample> corpus;
+
+        Report(long[] latencies, Outcome[] outcomes, long elapsed, List<Sample> corpus) {
+            this.latencies = latencies;
+            this.outcomes = outcomes;
+            this.elapsed = elapsed;
+            this.corpus = corpus;
+        }
+
+        void print() {
+            Map<Outcome, Integer> counts = new TreeMap<>();
+            Map<String, Outcome> failedFiles = new TreeMap<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                counts.merge(outcomes[i], 1, Integer::sum);
+                if (outcomes[i] != Outcome.MATCH && failedFiles.size() < 10) {
+                    failedFiles.put(corpus.get(i % corpus.size()).file, outcomes[i]);
+                }
+            }
+
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            double seconds = elapsed / 1e9;
+            System.out.printf("Requests:    %d in %.2f s%n", outcomes.length, seconds);
+            System.out.printf("Throughput:  %.1f req/s%n", outcomes.length / seconds);
+            System.out.printf("Latency ms:  p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    percentile(sorted, 99.9), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+            int matched = counts.getOrDefault(Outcome.MATCH, 0);
+            System.out.printf("Success:     %.2f%% (%d/%d)%n",
+                    outcomes.length == 0 ? 0 : 100.0 * matched / outcomes.length, matched, outcomes.length);
+            System.out.println("Outcomes:    " + counts);
+            if (!failedFiles.isEmpty()) {
+                System.out.println("Failed:      " + failedFiles);
+            }
+        }
+
+        // Nearest rank, in milliseconds
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.doomcatlee.licensedecoder.loadtest;
+
+/**
+ * "-name value" pairs, as JMH takes them.
+ */
+final class Options {
+    private final String[] args;
+
+    Options(String[] args) {
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Options come in -name value pairs");
+        }
+        this.args = args;
+    }
+
+    String get(String name, String defaultValue) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (args[i].equals("-" + name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    // (ex) "0:8" or "3" for a fixed value
+    double[] range(String name, String defaultValue) {
+        String[] bounds = get(name, defaultValue).split(":");
+        double min = Double.parseDouble(bounds[0]);
+        return new double[]{min, bounds.length > 1 ? Double.parseDouble(bounds[1]) : min};
+    }
+}
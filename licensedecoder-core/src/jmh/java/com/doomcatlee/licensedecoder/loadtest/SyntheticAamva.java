@@ -0,0 +1,189 @@
+package com.doomcatlee.licensedecoder.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Valid AAMVA payloads filled with made up people, no real license data.
+ *
+ * Versions 1 to 10 and a handful of US and Canadian issuers are covered, each with the name elements
+ * of its version:
+ *
+ *          Version 1       DAA "FIRST MIDDLE LAST", DAA "LAST, FIRST, MIDDLE" (Oregon) or DAB/DAC/DAD
+ *          Version 2-3     DCS family name, DCT given names
+ *          Version 4-10    DCS family name, DAC first name, DAD middle name
+ *
+ * Dates are MMDDCCYY for US issuers from version 2 on, CCYYMMDD otherwise.
+ */
+public final class SyntheticAamva {
+
+    public enum NameFormat { FULL_NAME, OREGON_COMMA, SEPARATE_V1, GIVEN_NAMES, SEPARATE }
+
+    // Issuer identification number, jurisdiction and country of a few issuers
+    private static final Object[][] ISSUERS = {
+            {636029, "OR", "USA"},
+            {636014, "CA", "USA"},
+            {636001, "NY", "USA"},
+            {636015, "TX", "USA"},
+            {636010, "FL", "USA"},
+            {636012, "ON", "CAN"},
+            {636028, "BC", "CAN"},
+    };
+
+    private static final String[] FIRST_NAMES = {"DONG", "ALEX", "MARIA", "JAMES", "PRIYA", "CHEN", "OLGA", "SAMUEL"};
+    private static final String[] MIDDLE_NAMES = {"KUN", "LEE", "ANN", "JO", "MARIE", "RAY"};
+    private static final String[] LAST_NAMES = {"LEE", "SMITH", "GARCIA", "NGUYEN", "O'BRIEN", "VAN DER BERG", "KIM"};
+    private static final String[] STREETS = {"MAIN ST", "OAK AVE", "2ND ST", "MARKET ST", "QUEEN ST W", "PINE RD"};
+    private static final String[] CITIES = {"PORTLAND", "SALEM", "SPRINGFIELD", "RIVERSIDE", "FAIRVIEW"};
+    private static final String[] EYES = {"BRO", "BLU", "GRN", "HAZ", "GRY"};
+
+    private final Random random;
+
+    public SyntheticAamva(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * One generated payload with what it was generated from.
+     */
+    public static final class Payload {
+        public final String text;
+        public final int version;
+        public final int issuerIdentificationNumber;
+        public final NameFormat nameFormat;
+
+        Payload(String text, int version, int issuerIdentificationNumber, NameFormat nameFormat) {
+            this.text = text;
+            this.version = version;
+            this.issuerIdentificationNumber = issuerIdentificationNumber;
+            this.nameFormat = nameFormat;
+        }
+    }
+
+    public Payload next() {
+        Object[] issuer = ISSUERS[random.nextInt(ISSUERS.length)];
+        int iin = (Integer) issuer[0];
+        String jurisdiction = (String) issuer[1];
+        boolean us = issuer[2].equals("USA");
+        int version = 1 + random.nextInt(10);
+        NameFormat nameFormat = nameFormat(version, jurisdiction);
+        return new Payload(payload(iin, jurisdiction, us, version, nameFormat), version, iin, nameFormat);
+    }
+
+    private NameFormat nameFormat(int version, String jurisdiction) {
+        if (version == 1) {
+            if (jurisdiction.equals("OR")) {
+                return NameFormat.OREGON_COMMA;
+            }
+            return random.nextBoolean() ? NameFormat.FULL_NAME : NameFormat.SEPARATE_V1;
+        }
+        return version <= 3 ? NameFormat.GIVEN_NAMES : NameFormat.SEPARATE;
+    }
+
+    private String payload(int iin, String jurisdiction, boolean us, int version, NameFormat nameFormat) {
+        String first = pick(FIRST_NAMES);
+        String middle = random.nextInt(4) == 0 ? null : pick(MIDDLE_NAMES);
+        String last = pick(LAST_NAMES);
+
+        List<String> elements = new ArrayList<>();
+        elements.add("DAQ" + licenseNumber(us));
+        switch (nameFormat) {
+            case FULL_NAME:
+                elements.add("DAA" + first + (middle != null ? " " + middle : "") + " " + last.replace(" ", ""));
+                break;
+            case OREGON_COMMA:
+                elements.add("DAA" + last + ", " + first + (middle != null ? ", " + middle : ""));
+                break;
+            case SEPARATE_V1:
+                elements.add("DAB" + last);
+                elements.add("DAC" + first);
+                addIfPresent(elements, "DAD", middle);
+                break;
+            case GIVEN_NAMES:
+                elements.add("DCS" + last);
+                elements.add("DCT" + first);
+                addIfPresent(elements, "DAD", middle);
+                break;
+            default:
+                elements.add("DCS" + last);
+                elements.add("DAC" + first);
+                addIfPresent(elements, "DAD", middle);
+        }
+
+        boolean monthFirst = us && version >= 2;
+        int birthYear = 1940 + random.nextInt(65);
+        int issueYear = 2010 + random.nextInt(12);
+        int month = 1 + random.nextInt(12);
+        int day = 1 + random.nextInt(28);
+        elements.add("DBB" + date(birthYear, month, day, monthFirst));
+        elements.add("DBD" + date(issueYear, month, day, monthFirst));
+        elements.add("DBA" + date(issueYear + 8, month, day, monthFirst));
+
+        elements.add("DBC" + (1 + random.nextInt(2)));
+        if (version == 1) {
+            elements.add("DAU" + (4 + random.nextInt(3)) + String.format("%02d", random.nextInt(12)));
+        } else if (us) {
+            elements.add("DAU" + String.format("%03d", 58 + random.nextInt(20)) + " IN");
+        } else {
+            elements.add("DAU" + (150 + random.nextInt(50)) + " cm");
+        }
+        elements.add("DAY" + pick(EYES));
+        elements.add("DAG" + (1 + random.nextInt(9999)) + " " + pick(STREETS));
+        elements.add("DAI" + pick(CITIES));
+        elements.add("DAJ" + jurisdiction);
+        elements.add("DAK" + (us ? String.format("%05d0000", random.nextInt(100000)) : "M5H 2N2"));
+        if (version >= 2) {
+            elements.add("DCG" + (us ? "USA" : "CAN"));
+        }
+
+        return barcode(iin, version, jurisdiction.charAt(0), elements);
+    }
+
+    /**
+     * AAMVA text with a DL subfile holding the given elements and a jurisdiction subfile.
+     */
+    public static String barcode(int iin, int version, char jurisdictionLetter, List<String> elements) {
+        StringBuilder dl = new StringBuilder("DL");
+        for (int i = 0; i < elements.size(); i++) {
+            dl.append(elements.get(i)).append(i < elements.size() - 1 ? "\n" : "\r");
+        }
+        String zType = "Z" + jurisdictionLetter;
+        String z = zType + zType + "A" + "SYNTHETIC\r";
+
+        int headerLength = version > 1 ? 41 : 39;
+        StringBuilder header = new StringBuilder("@\n\u001e\rANSI ").append(String.format("%06d%02d", iin, version));
+        if (version > 1) {
+            header.append("00");
+        }
+        header.append("02")
+                .append("DL").append(String.format("%04d%04d", headerLength, dl.length()))
+                .append(zType).append(String.format("%04d%04d", headerLength + dl.length(), z.length()));
+        return header.toString() + dl + z;
+    }
+
+    private String licenseNumber(boolean us) {
+        StringBuilder number = new StringBuilder();
+        number.append((char) ('A' + random.nextInt(26)));
+        for (int i = 0; i < (us ? 7 : 13); i++) {
+            number.append(random.nextInt(10));
+        }
+        return number.toString();
+    }
+
+    private static String date(int year, int month, int day, boolean monthFirst) {
+        return monthFirst
+                ? String.format("%02d%02d%04d", month, day, year)
+                : String.format("%04d%02d%02d", year, month, day);
+    }
+
+    private static void addIfPresent(List<String> elements, String code, String value) {
+        if (value != null) {
+            elements.add(code + value);
+        }
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,467 @@
+package com.doomcatlee.licensedecoder.cli;
+
+import com.doomcatlee.licensedecoder.component.DecodeProfile;
+import com.doomcatlee.licensedecoder.component.DecodeProperties;
+import com.doomcatlee.licensedecoder.component.DriverLicense;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import com.doomcatlee.licensedecoder.component.DriverLicenseCsvWriter;
+import com.doomcatlee.licensedecoder.component.DriverLicenseJsonWriter;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import com.doomcatlee.licensedecoder.handlers.ImageIngest;
+import com.google.zxing.NotFoundException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes archived scans straight from the disk, without the web server: no Spring context, Tomcat or Swagger.
+ * Started through the application jar with bulk-decode as the first argument.
+ *
+ *          (ex)
+ *              java -jar license-decoder.jar bulk-decode --in=/archive/scans --out=results.ndjson --checkpoint=results.done
+ *              java -jar license-decoder.jar bulk-decode --list=paths.txt --out=results.csv --threads=16 --fields=dob
+ *
+ *          --in            directory walked for images (jpg, jpeg, png, gif, bmp)
+ *          --list          file with one image path per line, - for stdin
+ *          --out           NDJSON or CSV file, by extension, - for stdout (the default)
+ *          --format        ndjson or csv, when it cannot be told from --out
+ *          --threads       decode threads, one per available processor by default
+ *          --profile       fast, balanced or thorough
+ *          --fields        elements to extract (ex) dob,licenseExpirationDate
+ *          --checkpoint    file listing the images done so far; a run given the same checkpoint skips them
+ *                          and appends to --out
+ *
+ * Images are read as they are found, only a few per thread are held in memory. Results are written in the
+ * order images finish decoding. Images are added to the checkpoint only once their rows have been flushed, so
+ * an interrupted run may decode its last images again on resume but never loses one.
+ *
+ * Images that fail to decode have a row with the reason and are checkpointed like the others: a resumed run
+ * does not retry them. Retry them in a run of their own, (ex) --list of the failed file names.
+ *
+ * A failure to write --out or --checkpoint stops the run, which exits with 1. Rows written before it are kept
+ * and a run given the same checkpoint resumes after them.
+ * **/
+public final class BulkDecodeCommand {
+    private static final Set<String> IMAGE_EXTENSIONS = new HashSet<>(Arrays.asList("jpg", "jpeg", "png", "gif", "bmp"));
+    private static final long FLUSH_MILLIS = 1000;
+    private static final long PROGRESS_MILLIS = 5000;
+
+    private final DriverLicenseComponent driverLicenseComponent;
+    private final DecodeProfile profile;
+    private final Set<AamvaElement> fields;
+    private final DriverLicenseCsvWriter csvWriter;
+    private final Writer out;
+    private final Writer checkpoint;
+    private final Set<String> done;
+    private final StringBuilder pendingCheckpoint = new StringBuilder(); // written rows not flushed yet
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private volatile IOException outputFailure; // first failed write, stops the run
+
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    BulkDecodeCommand(DriverLicenseComponent driverLicenseComponent, DecodeProfile profile, Set<AamvaElement> fields,
+                      DriverLicenseCsvWriter csvWriter, Writer out, Writer checkpoint, Set<String> done, int threads) {
+        this.driverLicenseComponent = driverLicenseComponent;
+        this.profile = profile;
+        this.fields = fields;
+        this.csvWriter = csvWriter;
+        this.out = out;
+        this.checkpoint = checkpoint;
+        this.done = done;
+        this.inFlight = new Semaphore(threads * 2);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-decode-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options;
+        int threads;
+        Set<AamvaElement> fields;
+        DecodeProfile requestedProfile;
+        try {
+            options = parseOptions(args);
+            threads = parseThreads(options.get("threads"));
+            fields = AamvaElement.parseFields(options.get("fields"));
+            requestedProfile = DecodeProfile.fromName(options.get("profile"), null);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        String in = options.get("in");
+        String list = options.get("list");
+        if ((in == null) == (list == null)) {
+            System.err.println("Give either --in=<directory> or --list=<file>, see BulkDecodeCommand for all options");
+            System.exit(2);
+            return;
+        }
+        String outName = options.getOrDefault("out", "-");
+        boolean csv = options.getOrDefault("format", outName.toLowerCase(Locale.ROOT).endsWith(".csv") ? "csv" : "ndjson")
+                .equalsIgnoreCase("csv");
+
+        DecodeProperties decodeProperties = new DecodeProperties();
+        // Every scan is decoded once, caching would only hold memory
+        decodeProperties.setCacheMaxEntries(0);
+        DriverLicenseComponent driverLicenseComponent = new DriverLicenseComponent(decodeProperties);
+        DecodeProfile profile = requestedProfile != null ? requestedProfile : driverLicenseComponent.getDefaultProfile();
+
+        Set<String> done = new HashSet<>();
+        Writer checkpoint = null;
+        if (options.containsKey("checkpoint")) {
+            Path checkpointPath = Paths.get(options.get("checkpoint"));
+            if (Files.exists(checkpointPath)) {
+                done.addAll(Files.readAllLines(checkpointPath, StandardCharsets.UTF_8));
+            }
+            checkpoint = Files.newBufferedWriter(checkpointPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        // Resumed runs append, the header is already there
+        boolean writeHeader = done.isEmpty();
+        Writer out;
+        if (outName.equals("-")) {
+            out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        } else {
+            Path outPath = Paths.get(outName);
+            writeHeader = writeHeader || !Files.exists(outPath) || Files.size(outPath) == 0;
+            out = new BufferedWriter(Files.newBufferedWriter(outPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    done.isEmpty() ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND), 1 << 16);
+        }
+
+        DriverLicenseCsvWriter csvWriter = csv ? new DriverLicenseCsvWriter(fields) : null;
+        if (csvWriter != null && writeHeader) {
+            csvWriter.writeHeader(out);
+        }
+
+        BulkDecodeCommand command = new BulkDecodeCommand(driverLicenseComponent, profile, fields, csvWriter, out,
+                checkpoint, done, threads);
+        System.err.printf("Decoding with %d threads, %s profile%s%n", threads, profile.name().toLowerCase(),
+                done.isEmpty() ? "" : ", " + done.size() + " images already done");
+        int status = 0;
+        try {
+            if (in != null) {
+                command.decodeTree(Paths.get(in));
+            } else if (list.equals("-")) {
+                command.decodeList(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(Paths.get(list), StandardCharsets.UTF_8)) {
+                    command.decodeList(reader);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Stopped: " + ex.getMessage());
+            status = 1;
+        } finally {
+            command.close();
+            if (!outName.equals("-")) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    // Already reported, the run stopped on it
+                }
+            }
+            driverLicenseComponent.shutdown();
+        }
+        if (status == 0 && command.outputFailure != null) {
+            // The last rows could not be flushed
+            System.err.println("Stopped: cannot write the output: " + command.outputFailure.getMessage());
+            status = 1;
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Decode every image under the directory, subdirectories included.
+     * **/
+    void decodeTree(Path root) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = startReporter(start);
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (attributes.isRegularFile() && isImage(file)) {
+                        try {
+                            submit(file.toString(), file);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            return FileVisitResult.TERMINATE;
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                    // Unreadable directory or file, report it and keep walking
+                    System.err.println("Skipped " + file + ": " + ex.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            awaitDecodes();
+            flush();
+            checkOutput();
+        } finally {
+            reporter.shutdownNow();
+        }
+        report(start, true);
+    }
+
+    /**
+     * Decode the images listed one per line, blank lines are skipped.
+     * **/
+    void decodeList(BufferedReader paths) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = startReporter(start);
+        try {
+            String line;
+            while ((line = paths.readLine()) != null) {
+                String name = line.trim();
+                if (!name.isEmpty()) {
+                    submit(name, Paths.get(name));
+                }
+            }
+            awaitDecodes();
+            flush();
+            checkOutput();
+        } finally {
+            reporter.shutdownNow();
+        }
+        report(start, true);
+    }
+
+    // Blocks while every thread already has images waiting, throws once a write has failed
+    private void submit(String name, Path file) throws IOException, InterruptedException {
+        if (done.contains(name)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        inFlight.acquire();
+        try {
+            checkOutput();
+        } catch (IOException ex) {
+            inFlight.release();
+            throw ex;
+        }
+        executor.execute(() -> {
+            try {
+                String row = decode(name, file);
+                synchronized (this) {
+                    if (outputFailure == null) {
+                        out.write(row);
+                        if (checkpoint != null) {
+                            pendingCheckpoint.append(name).append('\n');
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                fail(ex);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // One output row for the image, built off the lock
+    private String decode(String name, Path file) throws IOException {
+        StringWriter row = new StringWriter(512);
+        DriverLicense license = null;
+        String failure;
+        try {
+            // Closed before decoding, large scans are mapped rather than copied
+            ByteBuffer image = ImageIngest.read(file);
+            bytesRead.addAndGet(image.remaining());
+            license = driverLicenseComponent.decodeLicense(image, profile, fields);
+            failure = null;
+        } catch (NotFoundException ex) {
+            failure = "Barcode not found";
+        } catch (IOException ex) {
+            failure = "Cannot read file: " + ex.getMessage();
+        } catch (IllegalArgumentException ex) {
+            failure = ex.getMessage();
+        } catch (Exception ex) {
+            failure = "Failed";
+        }
+        (license != null ? decoded : failed).incrementAndGet();
+
+        if (csvWriter != null) {
+            if (license != null) {
+                csvWriter.write(name, license, row);
+            } else {
+                csvWriter.writeFailure(name, failure, row);
+            }
+            return row.toString();
+        }
+
+        // Same shape as a batch upload result, fileName first
+        row.write("{\"fileName\":");
+        DriverLicenseJsonWriter.writeString(name, row);
+        String result = license != null ? DriverLicenseJsonWriter.toJson(license) : DriverLicenseJsonWriter.result(failure);
+        if (result.length() > 2) {
+            row.write(',');
+        }
+        row.write(result, 1, result.length() - 1);
+        row.write('\n');
+        return row.toString();
+    }
+
+    private void awaitDecodes() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private ScheduledExecutorService startReporter(long start) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-decode-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException ex) {
+                fail(ex);
+            }
+        }, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        reporter.scheduleWithFixedDelay(() -> report(start, false), PROGRESS_MILLIS, PROGRESS_MILLIS,
+                TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+
+    // Output first, so every image in the checkpoint has its row on disk
+    synchronized void flush() throws IOException {
+        out.flush();
+        if (checkpoint != null && pendingCheckpoint.length() > 0) {
+            checkpoint.append(pendingCheckpoint);
+            checkpoint.flush();
+            pendingCheckpoint.setLength(0);
+        }
+    }
+
+    // Keeps the first failure, the ones after it are usually the same
+    private synchronized void fail(IOException ex) {
+        if (outputFailure == null) {
+            outputFailure = ex;
+        }
+    }
+
+    private void checkOutput() throws IOException {
+        IOException failure = outputFailure;
+        if (failure != null) {
+            throw new IOException("Cannot write the output: " + failure.getMessage(), failure);
+        }
+    }
+
+    private void report(long start, boolean last) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long finished = decoded.get() + failed.get();
+        System.err.printf("%s %d images (%d decoded, %d failed, %d skipped) in %.1f s, %.1f images/s, %.1f MB/s%n",
+                last ? "Done:" : "Progress:", finished, decoded.get(), failed.get(), skipped.get(), seconds,
+                seconds > 0 ? finished / seconds : 0, seconds > 0 ? bytesRead.get() / 1e6 / seconds : 0);
+    }
+
+    // Leaves stdout open
+    private synchronized void close() {
+        executor.shutdownNow();
+        try {
+            if (outputFailure == null) {
+                flush();
+            }
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    long getDecoded() {
+        return decoded.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    long getSkipped() {
+        return skipped.get();
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // 0 or missing for one thread per available processor
+    static int parseThreads(String value) {
+        if (value == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("--threads is not a number: " + value);
+        }
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    // --name=value, a bare --name is "true"
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> known = Arrays.asList("in", "list", "out", "format", "threads", "profile", "fields", "checkpoint");
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg.substring(2) : arg.substring(2, equals);
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+            options.put(name, equals < 0 ? "true" : arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
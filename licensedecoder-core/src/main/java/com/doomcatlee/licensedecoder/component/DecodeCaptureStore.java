@@ -0,0 +1,406 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Outcome;
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Stage;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the uploads that decoded slowly or failed, so the images behind a bad p99 can be replayed offline.
+ *
+ * Each capture is one file holding the image, the profile and fields it was decoded with, and the stage timings,
+ * outcome and winning strategy of the decode. Files are encrypted with AES-GCM, they hold license images.
+ * Once the directory holds more than maxBytes the oldest captures are deleted, like a ring buffer.
+ *
+ * Captures are written by a single background thread, a request never waits on the disk. When that thread
+ * falls behind, further captures are dropped. Dropped captures, and the ones that could not be written, are
+ * counted as capture failures in DecodeMetrics.
+ * **/
+public class DecodeCaptureStore {
+    private static final Logger log = LoggerFactory.getLogger(DecodeCaptureStore.class);
+
+    private static final byte[] MAGIC = {'L', 'D', 'C', '1'};
+    private static final String SUFFIX = ".capture";
+    private static final String PARTIAL_SUFFIX = SUFFIX + ".part";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final Path directory;
+    private final SecretKeySpec key;
+    private final long thresholdNanos;
+    private final boolean captureFailures;
+    private final long maxBytes;
+    private final DecodeMetrics metrics;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor writer;
+
+    // Capture files oldest first with their size, and the total size, guarded by this
+    private final LinkedHashMap<Path, Long> files = new LinkedHashMap<>();
+    private long totalBytes;
+
+    /**
+     * @param key AES key of 16, 24 or 32 bytes (see parseKey)
+     * @param thresholdMillis decodes taking longer are captured
+     * @param captureFailures whether failed decodes are captured whatever their time
+     * @param maxBytes size of the directory above which the oldest captures are deleted
+     * @param metrics counts the captures that were dropped
+     * **/
+    public DecodeCaptureStore(Path directory, byte[] key, long thresholdMillis, boolean captureFailures,
+                              long maxBytes, DecodeMetrics metrics) throws IOException {
+        this.directory = directory;
+        this.key = new SecretKeySpec(key, "AES");
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.captureFailures = captureFailures;
+        this.maxBytes = maxBytes;
+        this.metrics = metrics;
+
+        Files.createDirectories(directory);
+        // Left by writes cut short when the process stopped, they never became captures
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + PARTIAL_SUFFIX)) {
+            for (Path partial : stream) {
+                Files.deleteIfExists(partial);
+            }
+        }
+        for (Path file : list(directory)) {
+            add(file, Files.size(file));
+        }
+        evict();
+
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "decode-capture");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Decode AES key given in base64 (ex) the output of "openssl rand -base64 32"
+     * **/
+    public static byte[] parseKey(String base64) {
+        if (base64 == null || base64.trim().isEmpty()) {
+            throw new IllegalArgumentException("A base64 AES key is required to encrypt decode captures");
+        }
+        byte[] key = Base64.getDecoder().decode(base64.trim());
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("AES keys are 16, 24 or 32 bytes, got " + key.length);
+        }
+        return key;
+    }
+
+    /**
+     * Capture the upload when its decode was slow, or failed and failures are captured.
+     *
+     * @return whether the capture was queued for writing
+     * **/
+    public boolean offer(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields, DecodeTrace trace) {
+        if (!wants(trace)) {
+            return false;
+        }
+        long totalNanos = trace.elapsedNanos();
+        Capture capture = new Capture(System.currentTimeMillis(), profile, fields,
+                trace.getOutcome() != null ? trace.getOutcome() : Outcome.ERROR, trace.getStrategy(),
+                totalNanos, stageNanos(trace), barCodeBytes);
+        try {
+            writer.execute(() -> write(capture));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            // Writer is behind, losing a capture is better than slowing requests down
+            metrics.recordFailure(DecodeMetrics.Failure.CAPTURE);
+            return false;
+        }
+    }
+
+    /**
+     * Whether offer would capture a decode that went like trace, so callers holding the image in another
+     * form only copy it to bytes when it is kept.
+     * **/
+    public boolean wants(DecodeTrace trace) {
+        boolean failed = trace.getOutcome() != Outcome.SUCCESS;
+        return trace.elapsedNanos() >= thresholdNanos || (failed && captureFailures);
+    }
+
+    /**
+     * Capture files in the directory, oldest first.
+     * **/
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> captures = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                captures.add(file);
+            }
+        }
+        // Names start with the capture time, zero padded
+        Collections.sort(captures);
+        return captures;
+    }
+
+    /**
+     * Decrypt and read a capture file.
+     * **/
+    public static Capture read(Path file, byte[] key) throws IOException {
+        byte[] sealed = Files.readAllBytes(file);
+        if (sealed.length < MAGIC.length + IV_LENGTH || !Arrays.equals(Arrays.copyOf(sealed, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a decode capture: " + file);
+        }
+        byte[] plain;
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                    new GCMParameterSpec(TAG_BITS, sealed, MAGIC.length, IV_LENGTH));
+            int offset = MAGIC.length + IV_LENGTH;
+            plain = cipher.doFinal(sealed, offset, sealed.length - offset);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Cannot decrypt " + file + ", wrong key or damaged file", ex);
+        }
+        return Capture.readFrom(new DataInputStream(new ByteArrayInputStream(plain)));
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    /**
+     * Block until the captures queued so far are written, at most timeoutMillis.
+     * **/
+    public void flush(long timeoutMillis) throws InterruptedException {
+        try {
+            // Single writer thread, so the marker runs after everything queued before it
+            writer.submit(() -> { }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException ex) {
+            // Best effort, the captures are still written eventually
+        }
+    }
+
+    private void write(Capture capture) {
+        try {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream(capture.image.length + 512);
+            capture.writeTo(new DataOutputStream(plain));
+
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] encrypted = cipher.doFinal(plain.toByteArray());
+
+            String name = String.format("%013d-%06d%s", capture.timestamp, sequence.incrementAndGet() % 1000000, SUFFIX);
+            Path file = directory.resolve(name);
+            Path partial = directory.resolve(name + ".part");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(partial))) {
+                out.write(MAGIC);
+                out.write(iv);
+                out.write(encrypted);
+            }
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                add(file, Files.size(file));
+                evict();
+            }
+        } catch (IOException | GeneralSecurityException ex) {
+            log.debug("Failed to write a decode capture", ex);
+            metrics.recordFailure(DecodeMetrics.Failure.CAPTURE);
+        }
+    }
+
+    private synchronized void add(Path file, long size) {
+        files.put(file, size);
+        totalBytes += size;
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<Path, Long>> oldestFirst = files.entrySet().iterator();
+        while (totalBytes > maxBytes && oldestFirst.hasNext()) {
+            Map.Entry<Path, Long> oldest = oldestFirst.next();
+            oldestFirst.remove();
+            totalBytes -= oldest.getValue();
+            try {
+                Files.deleteIfExists(oldest.getKey());
+            } catch (IOException ex) {
+                log.debug("Failed to delete " + oldest.getKey(), ex);
+            }
+        }
+    }
+
+    private static long[] stageNanos(DecodeTrace trace) {
+        long[] nanos = new long[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            nanos[stage.ordinal()] = trace.ran(stage) ? trace.getNanos(stage) : -1;
+        }
+        return nanos;
+    }
+
+    /**
+     * One captured upload and what happened when it was decoded.
+     * **/
+    public static final class Capture {
+        private final long timestamp;
+        private final DecodeProfile profile;
+        private final Set<AamvaElement> fields;
+        private final Outcome outcome;
+        private final String strategy;
+        private final long totalNanos;
+        // By Stage.ordinal(), -1 for stages that did not run
+        private final long[] stageNanos;
+        private final byte[] image;
+
+        Capture(long timestamp, DecodeProfile profile, Set<AamvaElement> fields, Outcome outcome, String strategy,
+                long totalNanos, long[] stageNanos, byte[] image) {
+            this.timestamp = timestamp;
+            this.profile = profile;
+            this.fields = fields;
+            this.outcome = outcome;
+            this.strategy = strategy;
+            this.totalNanos = totalNanos;
+            this.stageNanos = stageNanos;
+            this.image = image;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public DecodeProfile getProfile() {
+            return profile;
+        }
+
+        /**
+         * @return fields the upload asked for, null for all of them
+         * **/
+        public Set<AamvaElement> getFields() {
+            return fields;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public boolean ran(Stage stage) {
+            return stageNanos[stage.ordinal()] >= 0;
+        }
+
+        public long getNanos(Stage stage) {
+            return Math.max(stageNanos[stage.ordinal()], 0);
+        }
+
+        public byte[] getImage() {
+            return image;
+        }
+
+        // Stages are written by name, captures stay readable when stages are added
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(timestamp);
+            out.writeUTF(profile.name());
+            out.writeUTF(fields == null ? "*" : joinNames(fields));
+            out.writeUTF(outcome.name());
+            out.writeUTF(strategy == null ? "" : strategy);
+            out.writeLong(totalNanos);
+            out.writeInt(stageNanos.length);
+            for (Stage stage : Stage.values()) {
+                out.writeUTF(stage.name());
+                out.writeLong(stageNanos[stage.ordinal()]);
+            }
+            out.writeInt(image.length);
+            out.write(image);
+            out.flush();
+        }
+
+        static Capture readFrom(DataInputStream in) throws IOException {
+            long timestamp = in.readLong();
+            DecodeProfile profile = DecodeProfile.valueOf(in.readUTF());
+            String fieldNames = in.readUTF();
+            Set<AamvaElement> fields = null;
+            if (!fieldNames.equals("*")) {
+                fields = EnumSet.noneOf(AamvaElement.class);
+                for (String name : fieldNames.split(",")) {
+                    if (!name.isEmpty()) {
+                        fields.add(AamvaElement.valueOf(name));
+                    }
+                }
+            }
+            Outcome outcome = Outcome.valueOf(in.readUTF());
+            String strategy = in.readUTF();
+            long totalNanos = in.readLong();
+
+            long[] stageNanos = new long[Stage.values().length];
+            Arrays.fill(stageNanos, -1);
+            int stages = in.readInt();
+            for (int i = 0; i < stages; i++) {
+                String name = in.readUTF();
+                long nanos = in.readLong();
+                for (Stage stage : Stage.values()) {
+                    if (stage.name().equals(name)) {
+                        stageNanos[stage.ordinal()] = nanos;
+                    }
+                }
+            }
+
+            byte[] image = new byte[in.readInt()];
+            in.readFully(image);
+            return new Capture(timestamp, profile, fields, outcome, strategy.isEmpty() ? null : strategy,
+                    totalNanos, stageNanos, image);
+        }
+
+        private static String joinNames(Set<AamvaElement> fields) {
+            StringBuilder names = new StringBuilder();
+            for (AamvaElement element : fields) {
+                if (names.length() > 0) {
+                    names.append(',');
+                }
+                names.append(element.name());
+            }
+            return names.toString();
+        }
+    }
+}
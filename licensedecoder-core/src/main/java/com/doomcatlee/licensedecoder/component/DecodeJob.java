@@ -0,0 +1,77 @@
+package com.doomcatlee.licensedecoder.component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.UUID;
+
+public class DecodeJob {
+    public enum Status { QUEUED, RUNNING, DONE }
+
+    private final String id;
+    private volatile Status status;
+    private volatile String result;
+    private volatile long finishedAt;
+
+    DecodeJob() {
+        id = UUID.randomUUID().toString();
+        status = Status.QUEUED;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void finish(String result) {
+        this.result = result;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.DONE;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Status of the job, with the decoded data once it is done.
+     *
+     *          (ex)
+     *              {
+     *                  "jobId": "4f0c...",
+     *                  "status": "DONE",
+     *                  "data": {"firstName": "Dong", ...}
+     *              }
+     *
+     * **/
+    public String toJson() {
+        // Read once, the job may finish while this is written
+        Status current = status;
+        StringWriter out = new StringWriter();
+        try {
+            out.write("{\"jobId\":");
+            DriverLicenseJsonWriter.writeString(id, out);
+            out.write(",\"status\":");
+            DriverLicenseJsonWriter.writeString(current.name(), out);
+            if (current == Status.DONE) {
+                // The result is already JSON, it is written as is
+                out.write(",\"data\":");
+                out.write(result);
+            }
+            out.write('}');
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return out.toString();
+    }
+}
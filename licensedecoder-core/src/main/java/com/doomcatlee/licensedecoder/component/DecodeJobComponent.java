@@ -0,0 +1,119 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DecodeJobComponent {
+    private static final Logger log = LoggerFactory.getLogger(DecodeJobComponent.class);
+
+    private final DriverLicenseComponent driverLicenseComponent;
+    private final Map<String, DecodeJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService sweeper;
+    private final long resultTtlMillis;
+
+    public DecodeJobComponent(DriverLicenseComponent driverLicenseComponent, DecodeProperties decodeProperties) {
+        this.driverLicenseComponent = driverLicenseComponent;
+        this.resultTtlMillis = TimeUnit.SECONDS.toMillis(decodeProperties.getJobResultTtlSeconds());
+
+        int threads = decodeProperties.getJobThreads() > 0
+                ? decodeProperties.getJobThreads()
+                : Runtime.getRuntime().availableProcessors();
+
+        // Fixed pool with a bounded queue, submissions beyond capacity are rejected instead of piling up
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(decodeProperties.getJobQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "decode-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "decode-job-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1000L, resultTtlMillis / 2);
+        sweeper.scheduleWithFixedDelay(this::removeExpiredJobs, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue the barcode image for decoding and return right away.
+     *
+     * @return queued job, or null when the queue is full
+     * **/
+    public DecodeJob submit(byte[] barCodeBytes, DecodeProfile profile) {
+        return submit(barCodeBytes, profile, null);
+    }
+
+    /**
+     * @param fields elements to extract and return, null for all of them
+     * **/
+    public DecodeJob submit(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields) {
+        DecodeJob job = new DecodeJob();
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> {
+                job.start();
+                String result;
+                try {
+                    result = driverLicenseComponent.decodeDriverLicense(barCodeBytes, profile, fields);
+                } catch (RuntimeException ex) {
+                    log.debug("Decode job " + job.getId() + " failed", ex);
+                    driverLicenseComponent.getMetrics().recordFailure(DecodeMetrics.Failure.JOB);
+                    result = DriverLicenseJsonWriter.result("Failed");
+                }
+                job.finish(result);
+            });
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Look up a job by id.
+     *
+     * @return job, or null when it does not exist or its result has expired
+     * **/
+    public DecodeJob getJob(String jobId) {
+        DecodeJob job = jobs.get(jobId);
+        if (job != null && isExpired(job, System.currentTimeMillis())) {
+            jobs.remove(jobId);
+            return null;
+        }
+        return job;
+    }
+
+    void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> isExpired(job, now));
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    private boolean isExpired(DecodeJob job, long now) {
+        return job.getStatus() == DecodeJob.Status.DONE && now - job.getFinishedAt() > resultTtlMillis;
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,280 @@
+package com.doomcatlee.licensedecoder.component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of each decode stage, outcome counters and upload sizes, written in the Prometheus text format.
+ *
+ * Recording only bumps counters (no locks, no allocation on the common path), percentiles are left to the
+ * scraper: histogram_quantile(0.99, rate(licensedecoder_stage_duration_seconds_bucket[5m])).
+ * Buckets double in size, so a percentile is known to within a factor of two.
+ * **/
+public class DecodeMetrics {
+
+    /**
+     * Stages of a decode, in the order they run.
+     *
+     *          UPLOAD      reading the multipart file into memory
+     *          STORE       queueing a copy for the upload directory (file.store-uploads)
+     *          IMAGE_READ  ImageIO.read
+     *          LUMINANCE   conversion of the image to luminance
+     *          LOCATE      search for the barcode region
+     *          BINARIZE    HybridBinarizer of the region and of the full frame
+     *          READ        MultiFormatReader over the tiers of the profile
+     *          RACE        retries with the other strategies (DecodeStrategyRace)
+     *          PARSE       BarcodeParser and DriverLicense
+     *          JSON        writing the result
+     * **/
+    public enum Stage {
+        UPLOAD, STORE, IMAGE_READ, LUMINANCE, LOCATE, BINARIZE, READ, RACE, PARSE, JSON;
+
+        final String label = name().toLowerCase();
+    }
+
+    /**
+     * How a decode ended. Anything failing outside the known causes is counted as ERROR.
+     * **/
+    public enum Outcome {
+        SUCCESS, CACHE_HIT, UNSUPPORTED_IMAGE, NOT_FOUND, PARSE_ERROR, ERROR;
+
+        final String label = name().toLowerCase();
+    }
+
+    /**
+     * Failures around a decode rather than of it, by cause.
+     *
+     *          UPLOAD      an upload or a ZIP archive of a batch could not be read
+     *          BATCH       the decode of a batch entry did not complete (ex) cancelled on shutdown
+     *          JOB         an asynchronous decode job threw
+     *          CAPTURE     a decode capture was dropped, its writer was behind or the file could not be written
+     * **/
+    public enum Failure {
+        UPLOAD, BATCH, JOB, CAPTURE;
+
+        final String label = name().toLowerCase();
+    }
+
+    // Distinct issuer/version pairs counted separately, garbage headers must not grow the map forever
+    private static final int MAX_ISSUERS = 512;
+    private static final long OTHER_ISSUER = -1;
+
+    private final Histogram[] stages = new Histogram[Stage.values().length];
+    private final Histogram total = Histogram.nanos();
+    private final Histogram uploadBytes = new Histogram(10, 28, 1);
+    private final Histogram imagePixels = new Histogram(14, 26, 1);
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final LongAdder[] failures = new LongAdder[Failure.values().length];
+    // Key is iin * 100 + version (ex) 63601403
+    private final ConcurrentHashMap<Long, LongAdder> issuers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> strategies = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public DecodeMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = Histogram.nanos();
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Start tracing one decode.
+     *
+     * @param bytes size of the uploaded image, -1 when not known (ex) a stream
+     * **/
+    public DecodeTrace start(long bytes) {
+        inFlight.incrementAndGet();
+        if (bytes >= 0) {
+            uploadBytes.record(bytes);
+        }
+        return new DecodeTrace(bytes);
+    }
+
+    /**
+     * Record the stage timings and outcome of a decode started with start(bytes).
+     * **/
+    public void finish(DecodeTrace trace) {
+        inFlight.decrementAndGet();
+        total.record(trace.elapsedNanos());
+        for (Stage stage : Stage.values()) {
+            if (trace.ran(stage)) {
+                stages[stage.ordinal()].record(trace.getNanos(stage));
+            }
+        }
+        if (trace.getImagePixels() > 0) {
+            imagePixels.record(trace.getImagePixels());
+        }
+
+        Outcome outcome = trace.getOutcome() != null ? trace.getOutcome() : Outcome.ERROR;
+        outcomes[outcome.ordinal()].increment();
+        if (outcome == Outcome.SUCCESS) {
+            counter(strategies, trace.getStrategy()).increment();
+            long issuer = trace.getIssuerIdentificationNumber() * 100L + trace.getVersionNumber();
+            if (!issuers.containsKey(issuer) && issuers.size() >= MAX_ISSUERS) {
+                issuer = OTHER_ISSUER;
+            }
+            counter(issuers, issuer).increment();
+        }
+    }
+
+    /**
+     * Time spent in a stage outside of a traced decode (ex) reading the upload in the controller.
+     * **/
+    public void record(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    public void recordCacheHit() {
+        outcomes[Outcome.CACHE_HIT.ordinal()].increment();
+    }
+
+    public void recordFailure(Failure failure) {
+        failures[failure.ordinal()].increment();
+    }
+
+    public long getCount(Failure failure) {
+        return failures[failure.ordinal()].sum();
+    }
+
+    public long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    public long getCount(Stage stage) {
+        return stages[stage.ordinal()].count();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Every metric in the Prometheus text exposition format (version 0.0.4).
+     * **/
+    public void writePrometheus(Writer out) throws IOException {
+        out.write("# HELP licensedecoder_stage_duration_seconds Time spent in each decode stage.\n");
+        out.write("# TYPE licensedecoder_stage_duration_seconds histogram\n");
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()].write("licensedecoder_stage_duration_seconds", "stage=\"" + stage.label + "\"", out);
+        }
+
+        out.write("# HELP licensedecoder_decode_duration_seconds Time from the start to the end of a decode.\n");
+        out.write("# TYPE licensedecoder_decode_duration_seconds histogram\n");
+        total.write("licensedecoder_decode_duration_seconds", null, out);
+
+        out.write("# HELP licensedecoder_upload_bytes Size of the uploaded images.\n");
+        out.write("# TYPE licensedecoder_upload_bytes histogram\n");
+        uploadBytes.write("licensedecoder_upload_bytes", null, out);
+
+        out.write("# HELP licensedecoder_image_pixels Width times height of the decoded images.\n");
+        out.write("# TYPE licensedecoder_image_pixels histogram\n");
+        imagePixels.write("licensedecoder_image_pixels", null, out);
+
+        out.write("# HELP licensedecoder_decodes_total Finished decodes by outcome.\n");
+        out.write("# TYPE licensedecoder_decodes_total counter\n");
+        for (Outcome outcome : Outcome.values()) {
+            out.write("licensedecoder_decodes_total{outcome=\"" + outcome.label + "\"} "
+                    + outcomes[outcome.ordinal()].sum() + "\n");
+        }
+
+        out.write("# HELP licensedecoder_failures_total Failures around decodes (reading uploads, batches, jobs, captures) by cause.\n");
+        out.write("# TYPE licensedecoder_failures_total counter\n");
+        for (Failure failure : Failure.values()) {
+            out.write("licensedecoder_failures_total{cause=\"" + failure.label + "\"} "
+                    + failures[failure.ordinal()].sum() + "\n");
+        }
+
+        out.write("# HELP licensedecoder_decodes_by_issuer_total Successful decodes by issuer (IIN) and AAMVA version.\n");
+        out.write("# TYPE licensedecoder_decodes_by_issuer_total counter\n");
+        for (Map.Entry<Long, LongAdder> entry : new TreeMap<>(issuers).entrySet()) {
+            long key = entry.getKey();
+            String labels = key == OTHER_ISSUER
+                    ? "iin=\"other\",version=\"other\""
+                    : "iin=\"" + key / 100 + "\",version=\"" + key % 100 + "\"";
+            out.write("licensedecoder_decodes_by_issuer_total{" + labels + "} " + entry.getValue().sum() + "\n");
+        }
+
+        out.write("# HELP licensedecoder_decodes_by_strategy_total Successful decodes by the strategy that found the barcode.\n");
+        out.write("# TYPE licensedecoder_decodes_by_strategy_total counter\n");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(strategies).entrySet()) {
+            out.write("licensedecoder_decodes_by_strategy_total{strategy=\"" + entry.getKey() + "\"} "
+                    + entry.getValue().sum() + "\n");
+        }
+
+        out.write("# HELP licensedecoder_decodes_in_flight Decodes running right now.\n");
+        out.write("# TYPE licensedecoder_decodes_in_flight gauge\n");
+        out.write("licensedecoder_decodes_in_flight " + inFlight.get() + "\n");
+    }
+
+    private static <K> LongAdder counter(ConcurrentHashMap<K, LongAdder> counters, K key) {
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /**
+     * Counts of values per power of two bucket, from 2^minShift up to 2^maxShift and everything above.
+     * **/
+    static final class Histogram {
+        private final int minShift;
+        private final double unit;
+        private final AtomicLongArray buckets;
+        private final LongAdder sum = new LongAdder();
+
+        Histogram(int minShift, int maxShift, double unit) {
+            this.minShift = minShift;
+            this.unit = unit;
+            this.buckets = new AtomicLongArray(maxShift - minShift + 2);
+        }
+
+        // About 1 microsecond to 68 seconds, written in seconds
+        static Histogram nanos() {
+            return new Histogram(10, 36, 1e9);
+        }
+
+        void record(long value) {
+            // Smallest shift with value <= 2^shift
+            int shift = value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+            int bucket = Math.min(Math.max(shift - minShift, 0), buckets.length() - 1);
+            buckets.incrementAndGet(bucket);
+            sum.add(value);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        void write(String name, String labels, Writer out) throws IOException {
+            String prefix = labels == null ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                cumulative += buckets.get(i);
+                String le = i == buckets.length() - 1 ? "+Inf" : format((1L << (minShift + i)) / unit);
+                out.write(name + "_bucket{" + prefix + "le=\"" + le + "\"} " + cumulative + "\n");
+            }
+            String suffix = labels == null ? "" : "{" + labels + "}";
+            out.write(name + "_sum" + suffix + " " + format(sum.sum() / unit) + "\n");
+            out.write(name + "_count" + suffix + " " + cumulative + "\n");
+        }
+
+        private static String format(double value) {
+            return value == Math.rint(value) && Math.abs(value) < 1e15
+                    ? Long.toString((long) value)
+                    : Double.toString(value);
+        }
+    }
+}
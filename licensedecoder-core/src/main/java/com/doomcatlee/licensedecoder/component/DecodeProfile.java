@@ -0,0 +1,120 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * How hard to look for the barcode. Every profile starts with the cheapest tier and only moves on to the
+ * next, more expensive, tier when the previous one found nothing.
+ *
+ *          FAST:     PDF417 only
+ *          BALANCED: FAST, then PDF417 with TRY_HARDER
+ *          THOROUGH: BALANCED, then PDF417 with TRY_HARDER, PURE_BARCODE and the AAMVA character set
+ *
+ * Except for FAST, an image that fails every tier is retried with other binarizers, rotations and inversion
+ * (see DecodeStrategyRace).
+ *
+ * **/
+public enum DecodeProfile {
+    FAST(false, Tiers.PDF417),
+    BALANCED(true, Tiers.PDF417, Tiers.TRY_HARDER),
+    THOROUGH(true, Tiers.PDF417, Tiers.TRY_HARDER, Tiers.EXHAUSTIVE);
+
+    private final boolean raceStrategies;
+    private final List<Map<DecodeHintType, Object>> tiers;
+
+    @SafeVarargs
+    DecodeProfile(boolean raceStrategies, Map<DecodeHintType, Object>... tiers) {
+        this.raceStrategies = raceStrategies;
+        this.tiers = Collections.unmodifiableList(Arrays.asList(tiers));
+    }
+
+    /**
+     * Run the tiers in order and stop at the first one that finds the barcode.
+     * The binarized matrix is cached by the bitmap, so later tiers do not binarize again.
+     * **/
+    public Result decode(BinaryBitmap bitmap) throws NotFoundException {
+        return decode(bitmap, null);
+    }
+
+    /**
+     * Same as decode(bitmap), but gives up between tiers once cancelled is set.
+     * **/
+    public Result decode(BinaryBitmap bitmap, AtomicBoolean cancelled) throws NotFoundException {
+        Reader reader = new MultiFormatReader();
+        for (Map<DecodeHintType, Object> hints : tiers) {
+            if (cancelled != null && cancelled.get()) {
+                break;
+            }
+            try {
+                return reader.decode(bitmap, hints);
+            } catch (ReaderException ex) {
+                // Not found with these hints, try the next tier
+            }
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    /**
+     * Whether failed images are retried with the other decode strategies.
+     * **/
+    public boolean isRaceStrategies() {
+        return raceStrategies;
+    }
+
+    /**
+     * Hints for each tier, cheapest first.
+     * **/
+    public List<Map<DecodeHintType, Object>> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Look up a profile by name, case insensitive (ex) "fast", "Balanced".
+     *
+     * @return matching profile, or defaultProfile when name is empty
+     * **/
+    public static DecodeProfile fromName(String name, DecodeProfile defaultProfile) {
+        if (name == null || name.trim().isEmpty()) {
+            return defaultProfile;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown decode profile: " + name);
+        }
+    }
+
+    // Hint maps are built once and shared, readers only ever read them
+    private static final class Tiers {
+        static final Map<DecodeHintType, Object> PDF417 = hints(false, false);
+        static final Map<DecodeHintType, Object> TRY_HARDER = hints(true, false);
+        static final Map<DecodeHintType, Object> EXHAUSTIVE = hints(true, true);
+
+        private static Map<DecodeHintType, Object> hints(boolean tryHarder, boolean exhaustive) {
+            Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+            hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.PDF_417));
+            if (tryHarder) {
+                hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+            }
+            if (exhaustive) {
+                hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+                hints.put(DecodeHintType.CHARACTER_SET, "ISO-8859-1");
+            }
+            return Collections.unmodifiableMap(hints);
+        }
+    }
+}
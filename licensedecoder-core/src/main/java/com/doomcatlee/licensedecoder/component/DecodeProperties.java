@@ -0,0 +1,193 @@
+package com.doomcatlee.licensedecoder.component;
+
+/**
+ * Settings of the decode pipeline. The web application binds them from the decode.* properties,
+ * embedding applications set them directly.
+ *
+ *          (ex)
+ *              DecodeProperties decodeProperties = new DecodeProperties();
+ *              decodeProperties.setProfile("fast");
+ *              new DriverLicenseComponent(decodeProperties);
+ * **/
+public class DecodeProperties {
+    private String profile = "balanced"; // fast, balanced or thorough
+    private boolean locateRegion = true; // crop to the likely barcode region before decoding
+    private int raceThreads = 0; // 0 means one thread per available processor
+    private int raceParallelism = 2; // 0 turns the strategy race off
+    private int cacheMaxEntries = 1000; // 0 turns the result cache off
+    private long cacheTtlSeconds = 60;
+    private int batchThreads = 0; // 0 means one thread per available processor
+    private int batchMaxInFlight = 0; // 0 means twice the number of batch threads
+    private int batchMaxEntries = 1000; // images expanded from the ZIP archives of one request
+    private long batchMaxEntryMegabytes = 16; // uncompressed size of one ZIP entry
+    private long batchMaxTotalMegabytes = 256; // uncompressed size of all ZIP entries of one request
+    private int jobThreads = 0; // 0 means one thread per available processor
+    private int jobQueueCapacity = 100;
+    private long jobResultTtlSeconds = 300;
+    private boolean captureEnabled = false; // keep slow and failed uploads to replay offline
+    private String captureDir = "./captures";
+    private String captureKey = ""; // base64 AES key, required when capture is enabled
+    private long captureThresholdMillis = 2000;
+    private boolean captureFailures = true;
+    private long captureMaxMegabytes = 256;
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public boolean isLocateRegion() {
+        return locateRegion;
+    }
+
+    public void setLocateRegion(boolean locateRegion) {
+        this.locateRegion = locateRegion;
+    }
+
+    public int getRaceThreads() {
+        return raceThreads;
+    }
+
+    public void setRaceThreads(int raceThreads) {
+        this.raceThreads = raceThreads;
+    }
+
+    public int getRaceParallelism() {
+        return raceParallelism;
+    }
+
+    public void setRaceParallelism(int raceParallelism) {
+        this.raceParallelism = raceParallelism;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public long getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+
+    public void setCacheTtlSeconds(long cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    public void setBatchThreads(int batchThreads) {
+        this.batchThreads = batchThreads;
+    }
+
+    public int getBatchMaxInFlight() {
+        return batchMaxInFlight;
+    }
+
+    public void setBatchMaxInFlight(int batchMaxInFlight) {
+        this.batchMaxInFlight = batchMaxInFlight;
+    }
+
+    public int getBatchMaxEntries() {
+        return batchMaxEntries;
+    }
+
+    public void setBatchMaxEntries(int batchMaxEntries) {
+        this.batchMaxEntries = batchMaxEntries;
+    }
+
+    public long getBatchMaxEntryMegabytes() {
+        return batchMaxEntryMegabytes;
+    }
+
+    public void setBatchMaxEntryMegabytes(long batchMaxEntryMegabytes) {
+        this.batchMaxEntryMegabytes = batchMaxEntryMegabytes;
+    }
+
+    public long getBatchMaxTotalMegabytes() {
+        return batchMaxTotalMegabytes;
+    }
+
+    public void setBatchMaxTotalMegabytes(long batchMaxTotalMegabytes) {
+        this.batchMaxTotalMegabytes = batchMaxTotalMegabytes;
+    }
+
+    public int getJobThreads() {
+        return jobThreads;
+    }
+
+    public void setJobThreads(int jobThreads) {
+        this.jobThreads = jobThreads;
+    }
+
+    public int getJobQueueCapacity() {
+        return jobQueueCapacity;
+    }
+
+    public void setJobQueueCapacity(int jobQueueCapacity) {
+        this.jobQueueCapacity = jobQueueCapacity;
+    }
+
+    public long getJobResultTtlSeconds() {
+        return jobResultTtlSeconds;
+    }
+
+    public void setJobResultTtlSeconds(long jobResultTtlSeconds) {
+        this.jobResultTtlSeconds = jobResultTtlSeconds;
+    }
+
+    public boolean isCaptureEnabled() {
+        return captureEnabled;
+    }
+
+    public void setCaptureEnabled(boolean captureEnabled) {
+        this.captureEnabled = captureEnabled;
+    }
+
+    public String getCaptureDir() {
+        return captureDir;
+    }
+
+    public void setCaptureDir(String captureDir) {
+        this.captureDir = captureDir;
+    }
+
+    public String getCaptureKey() {
+        return captureKey;
+    }
+
+    public void setCaptureKey(String captureKey) {
+        this.captureKey = captureKey;
+    }
+
+    public long getCaptureThresholdMillis() {
+        return captureThresholdMillis;
+    }
+
+    public void setCaptureThresholdMillis(long captureThresholdMillis) {
+        this.captureThresholdMillis = captureThresholdMillis;
+    }
+
+    public boolean isCaptureFailures() {
+        return captureFailures;
+    }
+
+    public void setCaptureFailures(boolean captureFailures) {
+        this.captureFailures = captureFailures;
+    }
+
+    public long getCaptureMaxMegabytes() {
+        return captureMaxMegabytes;
+    }
+
+    public void setCaptureMaxMegabytes(long captureMaxMegabytes) {
+        this.captureMaxMegabytes = captureMaxMegabytes;
+    }
+}
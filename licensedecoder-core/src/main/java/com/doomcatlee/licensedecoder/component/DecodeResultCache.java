@@ -0,0 +1,165 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decoded results keyed by the SHA-256 of the uploaded image, so retried uploads skip decoding entirely.
+ *
+ * The results are PII: entries only live for a short TTL and the least recently used ones are evicted
+ * once maxEntries is reached. Expired entries are swept on every get and put. Nothing is ever written to disk.
+ * **/
+public class DecodeResultCache {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+    // Every entry has the same TTL, so insertion order is expiry order, unlike the access order of entries
+    private final ArrayDeque<Expiry> expiries = new ArrayDeque<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DecodeResultCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        // Access order turns the map into an LRU list, eldest first
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DecodeResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache key of an image decoded with a profile (ex) "9f86d0...0f00a08:BALANCED".
+     * The profile is part of the key since a cheaper profile may fail where a slower one succeeds.
+     * **/
+    public String key(byte[] barCodeBytes, DecodeProfile profile) {
+        return key(barCodeBytes, profile, null);
+    }
+
+    /**
+     * A projected result only holds the requested fields, so the projection is part of the key as well
+     * (ex) "9f86d0...0f00a08:BALANCED:DOB,LICENSE_EXPIRATION_DATE".
+     * **/
+    public String key(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields) {
+        return key(ByteBuffer.wrap(barCodeBytes), profile, fields);
+    }
+
+    /**
+     * Same key for the remaining bytes of image, which may be memory-mapped. Its position is left as it is.
+     * **/
+    public String key(ByteBuffer image, DecodeProfile profile, Set<AamvaElement> fields) {
+        MessageDigest sha256 = sha256();
+        sha256.update(image.duplicate());
+        byte[] digest = sha256.digest();
+        char[] key = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            key[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            key[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        StringBuilder builder = new StringBuilder(key.length + 32).append(key).append(':').append(profile.name());
+        if (fields != null) {
+            builder.append(':');
+            // EnumSet iterates in declaration order whatever order the fields were asked in
+            String separator = "";
+            for (AamvaElement element : fields.isEmpty() ? fields : EnumSet.copyOf(fields)) {
+                builder.append(separator).append(element.name());
+                separator = ",";
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return cached result, or null when it is missing or has expired
+     * **/
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            removeExpired(now);
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.result;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, String result) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            removeExpired(now);
+            Entry entry = new Entry(result, now + ttlMillis);
+            entries.put(key, entry);
+            expiries.addLast(new Expiry(key, entry));
+        }
+    }
+
+    // Stops at the first expiry still ahead. An entry that was replaced or evicted since is left alone
+    private void removeExpired(long now) {
+        while (!expiries.isEmpty() && expiries.peekFirst().entry.expiresAt <= now) {
+            Expiry expiry = expiries.pollFirst();
+            entries.remove(expiry.key, expiry.entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            removeExpired(System.currentTimeMillis());
+            return entries.size();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Entry {
+        final String result;
+        final long expiresAt;
+
+        Entry(String result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Expiry {
+        final String key;
+        final Entry entry;
+
+        Expiry(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retries an image that failed the plain decode with every other strategy at once and keeps the first success.
+ *
+ * Attempts of all requests share one pool, and a single request never has more than parallelism attempts
+ * running or queued, so one hard image cannot take over the pool. Once an attempt succeeds the queued ones
+ * are cancelled and the running ones stop at their next tier.
+ *
+ * The pool is either created and owned by the race, which shutdown() stops, or given to it and left to
+ * its owner.
+ * **/
+public class DecodeStrategyRace {
+    private static final Logger log = LoggerFactory.getLogger(DecodeStrategyRace.class);
+
+    /**
+     * Binarizer, rotation and inversion of one attempt, most likely to succeed first.
+     * The PDF417 detector already retries every image upside down, so 180 and 270 degrees are covered by
+     * 0 and 90 degrees and have no strategy of their own.
+     * **/
+    enum Strategy {
+        HYBRID_90(false, true, false),
+        GLOBAL_HISTOGRAM(true, false, false),
+        GLOBAL_HISTOGRAM_90(true, true, false),
+        HYBRID_INVERTED(false, false, true),
+        HYBRID_90_INVERTED(false, true, true),
+        GLOBAL_HISTOGRAM_INVERTED(true, false, true),
+        GLOBAL_HISTOGRAM_90_INVERTED(true, true, true);
+
+        private final boolean globalHistogram;
+        private final boolean rotated;
+        private final boolean inverted;
+        final String label = name().toLowerCase();
+
+        Strategy(boolean globalHistogram, boolean rotated, boolean inverted) {
+            this.globalHistogram = globalHistogram;
+            this.rotated = rotated;
+            this.inverted = inverted;
+        }
+
+        BinaryBitmap bitmap(LuminanceSource source) {
+            if (rotated) {
+                source = source.rotateCounterClockwise();
+            }
+            if (inverted) {
+                source = source.invert();
+            }
+            Binarizer binarizer = globalHistogram ? new GlobalHistogramBinarizer(source) : new HybridBinarizer(source);
+            return new BinaryBitmap(binarizer);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int parallelism;
+
+    public DecodeStrategyRace(int threads, int parallelism) {
+        this(newPool(threads), true, parallelism);
+    }
+
+    /**
+     * Race on an executor shared with the rest of the application, shutdown() leaves it running.
+     * **/
+    public DecodeStrategyRace(ExecutorService executor, int parallelism) {
+        this(executor, false, parallelism);
+    }
+
+    private DecodeStrategyRace(ExecutorService executor, boolean ownsExecutor, int parallelism) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    private static ExecutorService newPool(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "decode-strategy-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Race the strategies that can still apply to the source and return the first barcode found.
+     * **/
+    public Result decode(LuminanceSource source, DecodeProfile profile) throws NotFoundException {
+        return decode(source, profile, null);
+    }
+
+    /**
+     * Same as decode(source, profile), the winning strategy is set on trace when it is not null.
+     * **/
+    public Result decode(LuminanceSource source, DecodeProfile profile, DecodeTrace trace) throws NotFoundException {
+        List<Strategy> strategies = new ArrayList<>();
+        for (Strategy strategy : Strategy.values()) {
+            if (!strategy.rotated || source.isRotateSupported()) {
+                strategies.add(strategy);
+            }
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Result>> futures = new ArrayList<>();
+        int next = 0;
+        int running = 0;
+        try {
+            while (running > 0 || next < strategies.size()) {
+                // Keep at most parallelism attempts of this request in the pool
+                while (running < parallelism && next < strategies.size()) {
+                    Strategy strategy = strategies.get(next++);
+                    futures.add(completion.submit(() -> attempt(source, strategy, profile, cancelled)));
+                    running++;
+                }
+
+                Future<Result> finished = completion.take();
+                running--;
+                Result result = resultOf(finished);
+                if (result != null) {
+                    if (trace != null) {
+                        // Futures were added in the order of the strategies
+                        trace.setStrategy(strategies.get(futures.indexOf(finished)).label);
+                    }
+                    return result;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cancelled.set(true);
+            for (Future<Result> future : futures) {
+                future.cancel(false);
+            }
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    private static Result attempt(LuminanceSource source, Strategy strategy, DecodeProfile profile,
+                                  AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            return null;
+        }
+        try {
+            return profile.decode(strategy.bitmap(source), cancelled);
+        } catch (NotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static Result resultOf(Future<Result> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            log.debug("Decode strategy failed", ex.getCause());
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Outcome;
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Stage;
+
+import java.util.Arrays;
+
+/**
+ * Stage timings and outcome of a single decode, filled in as the decode runs on one thread.
+ *
+ *          long start = System.nanoTime();
+ *          BufferedImage image = ImageIO.read(in);
+ *          trace.record(Stage.IMAGE_READ, start);
+ * **/
+public final class DecodeTrace {
+    private final long startNanos = System.nanoTime();
+    private final long bytes;
+    // -1 for stages that did not run, a stage running twice (ex) BINARIZE of region and full frame adds up
+    private final long[] stageNanos = new long[Stage.values().length];
+
+    private Outcome outcome;
+    private String strategy;
+    private long imagePixels;
+    private int issuerIdentificationNumber;
+    private int versionNumber;
+
+    DecodeTrace(long bytes) {
+        this.bytes = bytes;
+        Arrays.fill(stageNanos, -1);
+    }
+
+    /**
+     * Add the time since start, from System.nanoTime(), to the stage.
+     * **/
+    public void record(Stage stage, long start) {
+        long elapsed = System.nanoTime() - start;
+        int i = stage.ordinal();
+        stageNanos[i] = stageNanos[i] < 0 ? elapsed : stageNanos[i] + elapsed;
+    }
+
+    public boolean ran(Stage stage) {
+        return stageNanos[stage.ordinal()] >= 0;
+    }
+
+    public long getNanos(Stage stage) {
+        return Math.max(stageNanos[stage.ordinal()], 0);
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Size of the uploaded image, -1 when not known.
+     * **/
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * What found the barcode (ex) "region", "full_frame", "global_histogram_90", null until it is found.
+     * **/
+    public String getStrategy() {
+        return strategy;
+    }
+
+    void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public long getImagePixels() {
+        return imagePixels;
+    }
+
+    void setImagePixels(long imagePixels) {
+        this.imagePixels = imagePixels;
+    }
+
+    public int getIssuerIdentificationNumber() {
+        return issuerIdentificationNumber;
+    }
+
+    public int getVersionNumber() {
+        return versionNumber;
+    }
+
+    void succeeded(DriverLicense license) {
+        outcome = Outcome.SUCCESS;
+        issuerIdentificationNumber = license.getIssuerIdentificationNumber();
+        versionNumber = license.getVersionNumber();
+    }
+}
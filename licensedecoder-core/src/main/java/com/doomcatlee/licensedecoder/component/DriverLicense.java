@@ -0,0 +1,229 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParser;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Parsed driver license. Only the normalized values and the barcode they came from are kept,
+ * the parser and its maps are dropped once the license is built.
+ *
+ * A license built for a set of fields (ex) [DOB, LICENSE_EXPIRATION_DATE] only extracts and normalizes those.
+ * The other values are parsed from the barcode the first time one of them is asked for.
+ */
+public final class DriverLicense {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final String originalDataString;
+
+    // Normalized values indexed by AamvaElement.ordinal(), null for elements kept in typed fields below
+    private final String[] values;
+    private final double height;
+    private final LocalDate dob;
+    private final LocalDate licenseIssuedDate;
+    private final LocalDate licenseExpirationDate;
+    private final int issuerIdentificationNumber;
+    private final int versionNumber;
+
+    // Elements extracted up front, every element for a license built without a projection
+    private final Set<AamvaElement> fields;
+    // License with every element, parsed the first time an element outside fields is asked for
+    private volatile DriverLicense complete;
+
+    // Initialize driver license object with original data and parsed data
+    public DriverLicense(String barCode) {
+        this(barCode, (Set<AamvaElement>) null);
+    }
+
+    /**
+     * @param fields elements to extract, null for all of them
+     */
+    public DriverLicense(String barCode, Set<AamvaElement> fields) {
+        this(barCode, new BarcodeParser(barCode, fields), fields);
+    }
+
+    DriverLicense(String barCode, BarcodeParser parser) {
+        this(barCode, parser, null);
+    }
+
+    private DriverLicense(String barCode, BarcodeParser parser, Set<AamvaElement> fields) {
+        originalDataString = barCode;
+        this.fields = fields == null
+                ? Collections.unmodifiableSet(EnumSet.allOf(AamvaElement.class))
+                : Collections.unmodifiableSet(fields.isEmpty() ? EnumSet.noneOf(AamvaElement.class) : EnumSet.copyOf(fields));
+        if (fields == null) {
+            complete = this;
+        }
+
+        issuerIdentificationNumber = parser.getIdentificationNumber();
+        versionNumber = parser.getVersionNumber();
+
+        values = new String[AamvaElement.values().length];
+        values[AamvaElement.FIRST_NAME.ordinal()] = includes(AamvaElement.FIRST_NAME) ? parser.getFirstName() : null;
+        values[AamvaElement.MIDDLE_NAME.ordinal()] = includes(AamvaElement.MIDDLE_NAME) ? parser.getMiddleName() : null;
+        values[AamvaElement.LAST_NAME.ordinal()] = includes(AamvaElement.LAST_NAME) ? parser.getLastName() : null;
+        values[AamvaElement.ADDRESS.ordinal()] = includes(AamvaElement.ADDRESS) ? parser.getAddress() : null;
+        values[AamvaElement.CITY.ordinal()] = includes(AamvaElement.CITY) ? parser.getCity() : null;
+        values[AamvaElement.STATE.ordinal()] = includes(AamvaElement.STATE) ? parser.getState() : null;
+        values[AamvaElement.ZIP_CODE.ordinal()] = includes(AamvaElement.ZIP_CODE) ? parser.getZipCode() : null;
+        values[AamvaElement.COUNTRY.ordinal()] = includes(AamvaElement.COUNTRY) ? parser.getCountry() : null;
+        values[AamvaElement.DRIVER_LICENSE_NUMBER.ordinal()] =
+                includes(AamvaElement.DRIVER_LICENSE_NUMBER) ? parser.getDriverLicenseNumber() : null;
+        values[AamvaElement.EYE_COLOR.ordinal()] = includes(AamvaElement.EYE_COLOR) ? parser.getEyeColor() : null;
+        values[AamvaElement.SEX.ordinal()] = includes(AamvaElement.SEX) ? parser.getSex() : null;
+
+        height = includes(AamvaElement.HEIGHT) ? parser.getHeight() : 0;
+        dob = includes(AamvaElement.DOB) ? parser.getDOB() : null;
+        licenseIssuedDate = includes(AamvaElement.LICENSE_ISSUED_DATE) ? parser.getLicenseIssuedDate() : null;
+        licenseExpirationDate =
+                includes(AamvaElement.LICENSE_EXPIRATION_DATE) ? parser.getLicenseExpirationDate() : null;
+    }
+
+    /**
+     * Whether the element was extracted when the license was built, and is part of getData() and its JSON.
+     */
+    public boolean includes(AamvaElement element) {
+        return fields.contains(element);
+    }
+
+    public Set<AamvaElement> getFields() {
+        return fields;
+    }
+
+    /**
+     * Normalized text value of an element, null for NAME (split into first/middle/last) and the typed
+     * elements HEIGHT, DOB, LICENSE_ISSUED_DATE and LICENSE_EXPIRATION_DATE.
+     */
+    public String get(AamvaElement element) {
+        return includes(element) ? values[element.ordinal()] : complete().values[element.ordinal()];
+    }
+
+    // Benign race: two threads may both parse the barcode, either result is the same
+    private DriverLicense complete() {
+        DriverLicense license = complete;
+        if (license == null) {
+            license = new DriverLicense(originalDataString);
+            complete = license;
+        }
+        return license;
+    }
+
+    public String getFirstName() {
+        return get(AamvaElement.FIRST_NAME);
+    }
+
+    public String getMiddleName() {
+        return get(AamvaElement.MIDDLE_NAME);
+    }
+
+    public String getLastName() {
+        return get(AamvaElement.LAST_NAME);
+    }
+
+    public String getAddress() {
+        return get(AamvaElement.ADDRESS);
+    }
+
+    public String getCity() {
+        return get(AamvaElement.CITY);
+    }
+
+    public String getState() {
+        return get(AamvaElement.STATE);
+    }
+
+    public String getZipCode() {
+        return get(AamvaElement.ZIP_CODE);
+    }
+
+    public String getCountry() {
+        return get(AamvaElement.COUNTRY);
+    }
+
+    public String getDriverLicenseNumber() {
+        return get(AamvaElement.DRIVER_LICENSE_NUMBER);
+    }
+
+    public String getEyeColor() {
+        return get(AamvaElement.EYE_COLOR);
+    }
+
+    public String getSex() {
+        return get(AamvaElement.SEX);
+    }
+
+    /**
+     * Height in the unit of the card, NaN when the barcode does not have it.
+     */
+    public double getHeight() {
+        return includes(AamvaElement.HEIGHT) ? height : complete().height;
+    }
+
+    public LocalDate getDOB() {
+        return includes(AamvaElement.DOB) ? dob : complete().dob;
+    }
+
+    public LocalDate getLicenseIssuedDate() {
+        return includes(AamvaElement.LICENSE_ISSUED_DATE) ? licenseIssuedDate : complete().licenseIssuedDate;
+    }
+
+    public LocalDate getLicenseExpirationDate() {
+        return includes(AamvaElement.LICENSE_EXPIRATION_DATE) ? licenseExpirationDate : complete().licenseExpirationDate;
+    }
+
+    /**
+     * Issuer identification number from the header (ex) 636014 for California.
+     */
+    public int getIssuerIdentificationNumber() {
+        return issuerIdentificationNumber;
+    }
+
+    /**
+     * AAMVA version number from the header (ex) 8
+     */
+    public int getVersionNumber() {
+        return versionNumber;
+    }
+
+    public String getOriginalDataString() {
+        return originalDataString;
+    }
+
+    // Raw element values, parsed again from the barcode on every call
+    public HashMap<String, String> getOriginalData() {
+        return new BarcodeParser(originalDataString).getOriginalData();
+    }
+
+    /**
+     * Parsed values of the extracted fields keyed by AamvaElement.getDataName(), built on every call.
+     * Dates are formatted as yyyy-MM-dd, missing dates and heights are left out.
+     */
+    public HashMap<String, Object> getData() {
+        HashMap<String, Object> data = new HashMap<>();
+        for (AamvaElement element : fields) {
+            String value = values[element.ordinal()];
+            if (value != null && element.getDataName() != null) {
+                data.put(element.getDataName(), value);
+            }
+        }
+        if (includes(AamvaElement.HEIGHT) && !Double.isNaN(height)) {
+            data.put(AamvaElement.HEIGHT.getDataName(), height);
+        }
+        putDate(data, AamvaElement.DOB, dob);
+        putDate(data, AamvaElement.LICENSE_ISSUED_DATE, licenseIssuedDate);
+        putDate(data, AamvaElement.LICENSE_EXPIRATION_DATE, licenseExpirationDate);
+        return data;
+    }
+
+    private void putDate(HashMap<String, Object> data, AamvaElement element, LocalDate date) {
+        if (date != null && includes(element)) {
+            data.put(element.getDataName(), date.format(DATE_FORMATTER));
+        }
+    }
+}
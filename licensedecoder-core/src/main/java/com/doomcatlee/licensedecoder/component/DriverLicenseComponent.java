@@ -0,0 +1,508 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Outcome;
+import com.doomcatlee.licensedecoder.component.DecodeMetrics.Stage;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import com.doomcatlee.licensedecoder.handlers.BarcodeRegionLocator;
+import com.doomcatlee.licensedecoder.handlers.BufferedImageLuminanceSource;
+import com.doomcatlee.licensedecoder.handlers.ImageIngest;
+import com.google.zxing.*;
+import com.google.zxing.common.HybridBinarizer;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes driver license barcode images and AAMVA text to JSON. Plain Java, it can be embedded in any JVM
+ * service: construct it with the settings, decode in process, and close it when done with it.
+ *
+ *          (ex)
+ *              try (DriverLicenseComponent driverLicenseComponent = new DriverLicenseComponent(new DecodeProperties())) {
+ *                  String json = driverLicenseComponent.decodeDriverLicense(Files.readAllBytes(scan));
+ *              }
+ *
+ * The web application defines it as a bean in DecodeConfig. Failed decodes are counted in getMetrics() and
+ * only logged at debug level, a bad upload is not worth a stack trace.
+ * **/
+public class DriverLicenseComponent implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DriverLicenseComponent.class);
+
+    private final DecodeProfile defaultProfile;
+    private final boolean locateRegion;
+    private final DecodeStrategyRace strategyRace;
+    private final DecodeResultCache resultCache;
+    private final DecodeMetrics metrics = new DecodeMetrics();
+    private final DecodeCaptureStore captureStore;
+
+    /**
+     * Default settings without the strategy race, so no threads are started and nothing needs closing.
+     * **/
+    public DriverLicenseComponent() {
+        this(withoutRace(new DecodeProperties()));
+    }
+
+    public DriverLicenseComponent(DecodeProperties decodeProperties) {
+        this.defaultProfile = DecodeProfile.fromName(decodeProperties.getProfile(), DecodeProfile.BALANCED);
+        this.locateRegion = decodeProperties.isLocateRegion();
+
+        int raceThreads = decodeProperties.getRaceThreads() > 0
+                ? decodeProperties.getRaceThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.strategyRace = decodeProperties.getRaceParallelism() > 0
+                ? new DecodeStrategyRace(raceThreads, decodeProperties.getRaceParallelism())
+                : null;
+
+        this.resultCache = decodeProperties.getCacheMaxEntries() > 0
+                ? new DecodeResultCache(decodeProperties.getCacheMaxEntries(),
+                        TimeUnit.SECONDS.toMillis(decodeProperties.getCacheTtlSeconds()))
+                : null;
+
+        this.captureStore = decodeProperties.isCaptureEnabled() ? createCaptureStore(decodeProperties, metrics) : null;
+    }
+
+    private static DecodeProperties withoutRace(DecodeProperties decodeProperties) {
+        decodeProperties.setRaceParallelism(0);
+        return decodeProperties;
+    }
+
+    private static DecodeCaptureStore createCaptureStore(DecodeProperties decodeProperties, DecodeMetrics metrics) {
+        try {
+            return new DecodeCaptureStore(Paths.get(decodeProperties.getCaptureDir()),
+                    DecodeCaptureStore.parseKey(decodeProperties.getCaptureKey()),
+                    decodeProperties.getCaptureThresholdMillis(), decodeProperties.isCaptureFailures(),
+                    decodeProperties.getCaptureMaxMegabytes() * 1024 * 1024, metrics);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not open the capture directory " + decodeProperties.getCaptureDir(), ex);
+        }
+    }
+
+    public DecodeProfile getDefaultProfile() {
+        return defaultProfile;
+    }
+
+    /**
+     * @return cache of decoded uploads, or null when caching is turned off
+     * **/
+    public DecodeResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Stage timings and outcomes of every decode since startup.
+     * **/
+    public DecodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return store of slow and failed uploads, or null when capture is turned off
+     * **/
+    public DecodeCaptureStore getCaptureStore() {
+        return captureStore;
+    }
+
+    /**
+     * Given a stored barcode image, read it through a FileChannel, memory-mapped when large, and decode it.
+     * The file is closed before decoding starts, whatever happens.
+     * **/
+    public String decodeDriverLicense(Path file, DecodeProfile profile, Set<AamvaElement> fields) {
+        ByteBuffer image;
+        try {
+            image = ImageIngest.read(file);
+        } catch (IOException ex) {
+            log.debug("Failed to read barcode image", ex);
+            return DriverLicenseJsonWriter.result("Failed");
+        }
+        return decodeDriverLicense(image, profile, fields);
+    }
+
+    /**
+     * Given the raw bytes of the barcode image (ex) an upload, decode it without touching the disk.
+     * **/
+    public String decodeDriverLicense(byte[] barCodeBytes) {
+        return decodeDriverLicense(barCodeBytes, defaultProfile);
+    }
+
+    public String decodeDriverLicense(byte[] barCodeBytes, DecodeProfile profile) {
+        return decodeDriverLicense(barCodeBytes, profile, null);
+    }
+
+    /**
+     * Identical bytes decoded again within the cache TTL are answered from the cache, without reading the image.
+     *
+     * @param fields elements to extract and return (ex) [DOB, LICENSE_EXPIRATION_DATE], null for all of them
+     * **/
+    public String decodeDriverLicense(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields) {
+        return decodeDriverLicense(ByteBuffer.wrap(barCodeBytes), profile, fields);
+    }
+
+    /**
+     * Same as decodeDriverLicense(byte[], DecodeProfile, Set) for the remaining bytes of image (ex) a mapped file.
+     * **/
+    public String decodeDriverLicense(ByteBuffer image, DecodeProfile profile, Set<AamvaElement> fields) {
+        String cacheKey = null;
+        if (resultCache != null) {
+            cacheKey = resultCache.key(image, profile, fields);
+            String cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                metrics.recordCacheHit();
+                return cached;
+            }
+        }
+
+        DecodeTrace trace = metrics.start(image.remaining());
+        try {
+            DriverLicense license = decode(image, profile, fields, trace);
+            long start = System.nanoTime();
+            String result = DriverLicenseJsonWriter.toJson(license);
+            trace.record(Stage.JSON, start);
+            trace.succeeded(license);
+            // Only successes are cached, a failure may have been transient
+            if (cacheKey != null) {
+                resultCache.put(cacheKey, result);
+            }
+            return result;
+        } catch (Exception ex) {
+            log.debug("Failed to decode barcode image", ex);
+            return DriverLicenseJsonWriter.result("Failed");
+        } finally {
+            finish(trace, image, profile, fields);
+        }
+    }
+
+    /**
+     * Same as decodeDriverLicense(byte[], DecodeProfile, Set), but the result is written to out as it is serialized.
+     * The license goes straight from its fields to out. On a cache miss the same characters are copied into the
+     * new cache entry as they are written, the result is still serialized only once.
+     * **/
+    public void decodeDriverLicense(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields,
+                                    Writer out) throws IOException {
+        ByteBuffer image = ByteBuffer.wrap(barCodeBytes);
+        String cacheKey = null;
+        if (resultCache != null) {
+            cacheKey = resultCache.key(image, profile, fields);
+            String cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                metrics.recordCacheHit();
+                out.write(cached);
+                return;
+            }
+        }
+
+        DecodeTrace trace = metrics.start(barCodeBytes.length);
+        try {
+            DriverLicense license;
+            try {
+                license = decode(image, profile, fields, trace);
+            } catch (Exception ex) {
+                log.debug("Failed to decode barcode image", ex);
+                DriverLicenseJsonWriter.writeResult("Failed", out);
+                return;
+            }
+            long start = System.nanoTime();
+            CopyingWriter copy = cacheKey != null ? new CopyingWriter(out) : null;
+            DriverLicenseJsonWriter.write(license, copy != null ? copy : out);
+            trace.record(Stage.JSON, start);
+            trace.succeeded(license);
+            if (copy != null) {
+                resultCache.put(cacheKey, copy.toString());
+            }
+        } finally {
+            finish(trace, image, profile, fields);
+        }
+    }
+
+    /**
+     * Decode to a DriverLicense instead of JSON (ex) to write CSV. Not cached, failures are thrown.
+     *
+     * @throws NotFoundException when no barcode was found in the image
+     * @throws IllegalArgumentException when the bytes are not an image ImageIO can read
+     * **/
+    public DriverLicense decodeLicense(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields)
+            throws Exception {
+        return decodeLicense(ByteBuffer.wrap(barCodeBytes), profile, fields);
+    }
+
+    public DriverLicense decodeLicense(ByteBuffer image, DecodeProfile profile, Set<AamvaElement> fields)
+            throws Exception {
+        DecodeTrace trace = metrics.start(image.remaining());
+        try {
+            DriverLicense license = decode(image, profile, fields, trace);
+            trace.succeeded(license);
+            return license;
+        } finally {
+            finish(trace, image, profile, fields);
+        }
+    }
+
+    /**
+     * Decode without the cache, metrics or capture and return how it went, stage by stage.
+     * Meant for offline replay (ex) of captured uploads.
+     * **/
+    public DecodeTrace decodeTraced(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields) {
+        DecodeTrace trace = new DecodeTrace(barCodeBytes.length);
+        try {
+            DriverLicense license = decode(ByteBuffer.wrap(barCodeBytes), profile, fields, trace);
+            long start = System.nanoTime();
+            DriverLicenseJsonWriter.toJson(license);
+            trace.record(Stage.JSON, start);
+            trace.succeeded(license);
+        } catch (Exception ex) {
+            // Known causes already set the outcome
+            if (trace.getOutcome() == null) {
+                trace.setOutcome(Outcome.ERROR);
+            }
+        }
+        return trace;
+    }
+
+    // The image is only copied out of its buffer when the capture store keeps it
+    private void finish(DecodeTrace trace, ByteBuffer image, DecodeProfile profile, Set<AamvaElement> fields) {
+        metrics.finish(trace);
+        if (captureStore != null && captureStore.wants(trace)) {
+            captureStore.offer(ImageIngest.toBytes(image), profile, fields, trace);
+        }
+    }
+
+    /**
+     * Given a stream of the barcode image, decode it then instantiate DriverLicense object.
+     * **/
+    public String decodeDriverLicense(InputStream barCodeInputStream) {
+        return decodeDriverLicense(barCodeInputStream, defaultProfile);
+    }
+
+    /**
+     * The stream is read to its end into memory first, closing it is left to the caller.
+     * **/
+    public String decodeDriverLicense(InputStream barCodeInputStream, DecodeProfile profile) {
+        ByteBuffer image;
+        try {
+            image = ImageIngest.read(barCodeInputStream);
+        } catch (IOException ex) {
+            log.debug("Failed to read barcode image", ex);
+            return DriverLicenseJsonWriter.result("Failed");
+        }
+        return decodeDriverLicense(image, profile, null);
+    }
+
+    /**
+     * Read, locate, binarize, decode and parse, timing each stage on trace. A failure sets the outcome
+     * of trace to its cause before the exception is thrown.
+     * **/
+    private DriverLicense decode(ByteBuffer image, DecodeProfile profile,
+                                 Set<AamvaElement> fields, DecodeTrace trace) throws Exception {
+        long start = System.nanoTime();
+        BufferedImage barCodeBufferedImage = ImageIngest.decode(image);
+        trace.record(Stage.IMAGE_READ, start);
+        if (barCodeBufferedImage == null) {
+            trace.setOutcome(Outcome.UNSUPPORTED_IMAGE);
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+        trace.setImagePixels((long) barCodeBufferedImage.getWidth() * barCodeBufferedImage.getHeight());
+
+        start = System.nanoTime();
+        LuminanceSource source = new BufferedImageLuminanceSource(barCodeBufferedImage);
+        trace.record(Stage.LUMINANCE, start);
+
+        Result result;
+        try {
+            result = decodeBarcode(source, profile, trace);
+        } catch (NotFoundException ex) {
+            trace.setOutcome(Outcome.NOT_FOUND);
+            throw ex;
+        }
+        String resultText = result.getText();
+
+        start = System.nanoTime();
+        try {
+            return new DriverLicense(resultText, fields);
+        } catch (RuntimeException ex) {
+            trace.setOutcome(Outcome.PARSE_ERROR);
+            throw ex;
+        } finally {
+            trace.record(Stage.PARSE, start);
+        }
+    }
+
+    /**
+     * Try the located barcode region first, only binarize and scan the full frame when that fails.
+     * If the full frame fails too, race the other strategies (rotations, binarizers, inversion) in parallel.
+     * **/
+    Result decodeBarcode(LuminanceSource source, DecodeProfile profile, DecodeTrace trace) throws NotFoundException {
+        LuminanceSource region = null;
+        if (locateRegion) {
+            long start = System.nanoTime();
+            region = BarcodeRegionLocator.locate(source);
+            trace.record(Stage.LOCATE, start);
+        }
+        if (region != null) {
+            try {
+                Result result = decodeBitmap(region, profile, trace);
+                trace.setStrategy("region");
+                return result;
+            } catch (NotFoundException ex) {
+                // Wrong or incomplete region, fall back to the full frame
+            }
+        }
+        try {
+            Result result = decodeBitmap(source, profile, trace);
+            trace.setStrategy("full_frame");
+            return result;
+        } catch (NotFoundException ex) {
+            if (strategyRace == null || !profile.isRaceStrategies()) {
+                throw ex;
+            }
+            long start = System.nanoTime();
+            try {
+                return strategyRace.decode(source, profile, trace);
+            } finally {
+                trace.record(Stage.RACE, start);
+            }
+        }
+    }
+
+    // The bitmap keeps its binarized matrix, so binarizing up front only splits the time between the stages
+    private static Result decodeBitmap(LuminanceSource source, DecodeProfile profile, DecodeTrace trace)
+            throws NotFoundException {
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+        long start = System.nanoTime();
+        try {
+            bitmap.getBlackMatrix();
+        } finally {
+            trace.record(Stage.BINARIZE, start);
+        }
+        start = System.nanoTime();
+        try {
+            return profile.decode(bitmap);
+        } finally {
+            trace.record(Stage.READ, start);
+        }
+    }
+
+    /**
+     * Stop the strategy race and capture threads.
+     * **/
+    public void shutdown() {
+        if (strategyRace != null) {
+            strategyRace.shutdown();
+        }
+        if (captureStore != null) {
+            captureStore.shutdown();
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * Given the raw AAMVA text already read from the barcode, parse it without going through ZXing.
+     * **/
+    public String parseDriverLicense(String barCode) {
+        return parseDriverLicense(barCode, null);
+    }
+
+    public String parseDriverLicense(String barCode, Set<AamvaElement> fields) {
+        try {
+            // Create new driver license object
+            return DriverLicenseJsonWriter.toJson(new DriverLicense(barCode, fields));
+        } catch (Exception ex) {
+            log.debug("Failed to parse barcode text", ex);
+            return DriverLicenseJsonWriter.result("Failed");
+        }
+    }
+
+    /**
+     * Parse a stream of AAMVA strings, one JSON string literal per line since the barcode text itself
+     * contains line feeds, and write one parsed record per line (NDJSON) as soon as it is parsed.
+     *
+     *          (ex)
+     *              in:  "@\n\u001e\rANSI 636014040002DL00410278ZC03190008DLDAQ..."
+     *              out: {"firstName":"Dong",...}
+     *
+     * Blank lines are skipped, a line that cannot be parsed yields {"result":"Failed"} in its place.
+     * **/
+    public void parseDriverLicenses(BufferedReader in, Writer out) throws IOException {
+        parseDriverLicenses(in, out, null);
+    }
+
+    public void parseDriverLicenses(BufferedReader in, Writer out, Set<AamvaElement> fields) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            DriverLicense license;
+            try {
+                license = new DriverLicense((String) new JSONTokener(line).nextValue(), fields);
+            } catch (Exception ex) {
+                license = null;
+            }
+            if (license != null) {
+                DriverLicenseJsonWriter.write(license, out);
+            } else {
+                DriverLicenseJsonWriter.writeResult("Failed", out);
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes through to out and keeps a copy of everything written, toString() gives the copy back.
+     * **/
+    private static final class CopyingWriter extends Writer {
+        private final Writer out;
+        private final StringBuilder copy = new StringBuilder(512);
+
+        CopyingWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            copy.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            copy.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            out.write(text, offset, length);
+            copy.append(text, offset, offset + length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        // out belongs to the caller
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public String toString() {
+            return copy.toString();
+        }
+    }
+}
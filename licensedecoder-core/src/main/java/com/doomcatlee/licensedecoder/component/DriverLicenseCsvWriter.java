@@ -0,0 +1,128 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes decode results as CSV rows (RFC 4180), one per image, with the same fields in the same order as the JSON.
+ * Only the columns of the projection are written, failed images leave them empty and fill in result.
+ *
+ *          (ex)
+ *              fileName,firstName,middleName,lastName,...,height,dob,licenseIssuedDate,licenseExpirationDate,result
+ *              scans/front.png,DONG,KUN,LEE,...,70,1993-08-21,2015-08-21,2023-08-21,
+ *              scans/blurry.jpg,,,,...,,,,,Barcode not found
+ *
+ * **/
+public final class DriverLicenseCsvWriter {
+
+    private static final AamvaElement[] COLUMNS = {
+            AamvaElement.FIRST_NAME,
+            AamvaElement.MIDDLE_NAME,
+            AamvaElement.LAST_NAME,
+            AamvaElement.ADDRESS,
+            AamvaElement.CITY,
+            AamvaElement.STATE,
+            AamvaElement.ZIP_CODE,
+            AamvaElement.DRIVER_LICENSE_NUMBER,
+            AamvaElement.EYE_COLOR,
+            AamvaElement.SEX,
+            AamvaElement.HEIGHT,
+            AamvaElement.DOB,
+            AamvaElement.LICENSE_ISSUED_DATE,
+            AamvaElement.LICENSE_EXPIRATION_DATE
+    };
+
+    private final AamvaElement[] columns;
+
+    /**
+     * @param fields elements to write a column for, null for all of them
+     * **/
+    public DriverLicenseCsvWriter(Set<AamvaElement> fields) {
+        List<AamvaElement> columns = new ArrayList<>();
+        for (AamvaElement element : COLUMNS) {
+            if (fields == null || fields.contains(element)) {
+                columns.add(element);
+            }
+        }
+        this.columns = columns.toArray(new AamvaElement[0]);
+    }
+
+    public void writeHeader(Writer out) throws IOException {
+        out.write("fileName");
+        for (AamvaElement element : columns) {
+            out.write(',');
+            out.write(element.getDataName());
+        }
+        out.write(",result\r\n");
+    }
+
+    public void write(String fileName, DriverLicense license, Writer out) throws IOException {
+        writeField(fileName, out);
+        for (AamvaElement element : columns) {
+            out.write(',');
+            writeField(value(license, element), out);
+        }
+        out.write(",\r\n");
+    }
+
+    public void writeFailure(String fileName, String message, Writer out) throws IOException {
+        writeField(fileName, out);
+        for (int i = 0; i < columns.length; i++) {
+            out.write(',');
+        }
+        out.write(',');
+        writeField(message, out);
+        out.write("\r\n");
+    }
+
+    private static String value(DriverLicense license, AamvaElement element) {
+        switch (element) {
+            case HEIGHT:
+                double height = license.getHeight();
+                if (Double.isNaN(height)) {
+                    return null;
+                }
+                return height == Math.rint(height) ? Long.toString((long) height) : Double.toString(height);
+            case DOB:
+                return date(license.getDOB());
+            case LICENSE_ISSUED_DATE:
+                return date(license.getLicenseIssuedDate());
+            case LICENSE_EXPIRATION_DATE:
+                return date(license.getLicenseExpirationDate());
+            default:
+                return license.get(element);
+        }
+    }
+
+    // ISO yyyy-MM-dd like the JSON
+    private static String date(LocalDate date) {
+        return date == null ? null : date.toString();
+    }
+
+    /**
+     * Write a value, quoted only when it holds a comma, a quote or a line break. Null is written as empty.
+     * **/
+    static void writeField(String value, Writer out) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,203 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Writes decode results as JSON in a single pass, straight to the response or any other Writer.
+ *
+ * Field names are escaped and quoted once, up front, so writing a license only escapes its values.
+ * Fields are always written in the same order, missing dates and fields outside the license projection are left out.
+ *
+ *          (ex)
+ *              {"firstName":"DONG","middleName":"KUN","lastName":"LEE",...,"height":70,"dob":"1993-08-21",...}
+ *
+ *              {"result":"Failed"}
+ *
+ * **/
+public final class DriverLicenseJsonWriter {
+
+    private static final AamvaElement[] TEXT_FIELDS = {
+            AamvaElement.FIRST_NAME,
+            AamvaElement.MIDDLE_NAME,
+            AamvaElement.LAST_NAME,
+            AamvaElement.ADDRESS,
+            AamvaElement.CITY,
+            AamvaElement.STATE,
+            AamvaElement.ZIP_CODE,
+            AamvaElement.DRIVER_LICENSE_NUMBER,
+            AamvaElement.EYE_COLOR,
+            AamvaElement.SEX
+    };
+
+    // "name": prefixes indexed by AamvaElement.ordinal(), null for elements that are never written
+    private static final char[][] FIELD_NAMES = new char[AamvaElement.values().length][];
+    private static final char[] RESULT_NAME = fieldName("result");
+    static {
+        for (AamvaElement element : AamvaElement.values()) {
+            if (element.getDataName() != null) {
+                FIELD_NAMES[element.ordinal()] = fieldName(element.getDataName());
+            }
+        }
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private DriverLicenseJsonWriter() {
+    }
+
+    public static void write(DriverLicense license, Writer out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (AamvaElement element : TEXT_FIELDS) {
+            String value = license.includes(element) ? license.get(element) : null;
+            if (value != null) {
+                first = writeName(element, first, out);
+                writeString(value, out);
+            }
+        }
+
+        if (license.includes(AamvaElement.HEIGHT) && !Double.isNaN(license.getHeight())) {
+            first = writeName(AamvaElement.HEIGHT, first, out);
+            writeNumber(license.getHeight(), out);
+        }
+        if (license.includes(AamvaElement.DOB)) {
+            first = writeDate(AamvaElement.DOB, license.getDOB(), first, out);
+        }
+        if (license.includes(AamvaElement.LICENSE_ISSUED_DATE)) {
+            first = writeDate(AamvaElement.LICENSE_ISSUED_DATE, license.getLicenseIssuedDate(), first, out);
+        }
+        if (license.includes(AamvaElement.LICENSE_EXPIRATION_DATE)) {
+            writeDate(AamvaElement.LICENSE_EXPIRATION_DATE, license.getLicenseExpirationDate(), first, out);
+        }
+        out.write('}');
+    }
+
+    public static String toJson(DriverLicense license) {
+        StringWriter out = new StringWriter(384);
+        try {
+            write(license, out);
+        } catch (IOException ex) {
+            // StringWriter does not throw
+            throw new IllegalStateException(ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write an error or status payload (ex) {"result":"Failed"}, or {} when there is no message.
+     * **/
+    public static void writeResult(String message, Writer out) throws IOException {
+        out.write('{');
+        if (message != null) {
+            out.write(RESULT_NAME);
+            writeString(message, out);
+        }
+        out.write('}');
+    }
+
+    public static String result(String message) {
+        StringWriter out = new StringWriter(32);
+        try {
+            writeResult(message, out);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write a quoted JSON string, escaping quotes, backslashes and control characters.
+     * Runs of characters that need no escaping are written in one call.
+     * **/
+    public static void writeString(String value, Writer out) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != 0x2028 && c != 0x2029) {
+                continue;
+            }
+            if (i > start) {
+                out.write(value, start, i - start);
+            }
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    out.write("\\u");
+                    out.write(HEX[(c >> 12) & 0xF]);
+                    out.write(HEX[(c >> 8) & 0xF]);
+                    out.write(HEX[(c >> 4) & 0xF]);
+                    out.write(HEX[c & 0xF]);
+            }
+        }
+        if (length > start) {
+            out.write(value, start, length - start);
+        }
+        out.write('"');
+    }
+
+    // @return false, the next field is never the first one
+    private static boolean writeName(AamvaElement element, boolean first, Writer out) throws IOException {
+        if (!first) {
+            out.write(',');
+        }
+        out.write(FIELD_NAMES[element.ordinal()]);
+        return false;
+    }
+
+    // Whole numbers are written without a fraction (ex) 70 rather than 70.0
+    private static void writeNumber(double value, Writer out) throws IOException {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.write(Long.toString((long) value));
+        } else {
+            out.write(Double.toString(value));
+        }
+    }
+
+    // yyyy-MM-dd, written digit by digit
+    private static boolean writeDate(AamvaElement element, LocalDate date, boolean first, Writer out) throws IOException {
+        if (date == null) {
+            return first;
+        }
+        writeName(element, first, out);
+        out.write('"');
+        writeDigits(date.getYear(), 4, out);
+        out.write('-');
+        writeDigits(date.getMonthValue(), 2, out);
+        out.write('-');
+        writeDigits(date.getDayOfMonth(), 2, out);
+        out.write('"');
+        return false;
+    }
+
+    private static void writeDigits(int value, int digits, Writer out) throws IOException {
+        for (int divisor = digits == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.write('0' + (value / divisor) % 10);
+        }
+    }
+
+    private static char[] fieldName(String name) {
+        return ('"' + name + "\":").toCharArray();
+    }
+}
@@ -0,0 +1,187 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Normalizes element values straight from their span in the barcode, [start, end).
+ *
+ * Digits are read one char at a time, nothing is copied, split or matched with a regex. Only the
+ * returned value is allocated, and not even that for the common sexes.
+ */
+public final class AamvaCodecs {
+
+    /**
+     * Layout of the eight digits of a date element.
+     *
+     *          CCYYMMDD    (ex) "19930821", AAMVA version 1 and Canadian issuers
+     *          MMDDCCYY    (ex) "08211993", US issuers from AAMVA version 2 on
+     */
+    public enum DateLayout {
+        CCYYMMDD, MMDDCCYY;
+
+        /**
+         * @param country value of the DCG element (ex) "USA", "CAN", or null when the card has none
+         */
+        public static DateLayout of(int versionNumber, CharSequence country) {
+            if (versionNumber <= 1 || (country != null && equalsTrimmed(country, "CAN"))) {
+                return CCYYMMDD;
+            }
+            return MMDDCCYY;
+        }
+
+        public DateLayout other() {
+            return this == CCYYMMDD ? MMDDCCYY : CCYYMMDD;
+        }
+    }
+
+    private AamvaCodecs() {
+    }
+
+    /**
+     * Parse a date in the given layout. Issuers do not always follow the layout of their version, so when
+     * the digits are not a valid date in that layout the other one is tried.
+     *
+     *          (ex) "08211993" MMDDCCYY -> 1993-08-21
+     *               "19930821" MMDDCCYY -> 1993-08-21 (month 19 is not valid, read as CCYYMMDD)
+     *
+     * @throws IllegalArgumentException when the span is not a date in either layout
+     */
+    public static LocalDate parseDate(CharSequence value, int start, int end, DateLayout layout) {
+        start = trimStart(value, start, end);
+        end = trimEnd(value, start, end);
+        if (end - start == 8) {
+            LocalDate date = parseDate(value, start, layout);
+            if (date == null) {
+                date = parseDate(value, start, layout.other());
+            }
+            if (date != null) {
+                return date;
+            }
+        }
+        throw new IllegalArgumentException("Invalid date: " + value.subSequence(start, end));
+    }
+
+    // @return null when the digits are not a valid date in this layout
+    private static LocalDate parseDate(CharSequence value, int start, DateLayout layout) {
+        int year, month, day;
+        if (layout == DateLayout.CCYYMMDD) {
+            year = digits(value, start, 4);
+            month = digits(value, start + 4, 2);
+            day = digits(value, start + 6, 2);
+        } else {
+            month = digits(value, start, 2);
+            day = digits(value, start + 2, 2);
+            year = digits(value, start + 4, 4);
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Height as the number formed by every digit of the value, whatever the unit or separators around them.
+     *
+     *          (ex) "070 IN" -> 70.0, "5-09" -> 509.0, "175 cm" -> 175.0
+     *
+     * @throws NumberFormatException when the value has no digit
+     */
+    public static double parseHeight(CharSequence value, int start, int end) {
+        double height = 0;
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                height = height * 10 + (c - '0');
+                digits = true;
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("No digits in height: " + value.subSequence(start, end));
+        }
+        return height;
+    }
+
+    /**
+     * Sex as M or F. Some issuers encode it as 1 (male) or 2 (female), anything else is upper cased.
+     */
+    public static String parseSex(CharSequence value, int start, int end) {
+        start = trimStart(value, start, end);
+        end = trimEnd(value, start, end);
+        if (end - start == 1) {
+            switch (value.charAt(start)) {
+                case '1':
+                case 'M':
+                case 'm':
+                    return "M";
+                case '2':
+                case 'F':
+                case 'f':
+                    return "F";
+                default:
+            }
+        }
+        return value.subSequence(start, end).toString().toUpperCase();
+    }
+
+    /**
+     * License number without surrounding whitespace and without dots (ex) "D123.456.789" -> "D123456789".
+     */
+    public static String parseLicenseNumber(CharSequence value, int start, int end) {
+        start = trimStart(value, start, end);
+        end = trimEnd(value, start, end);
+        char[] number = new char[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c != '.') {
+                number[length++] = c;
+            }
+        }
+        return new String(number, 0, length);
+    }
+
+    // Same whitespace as String.trim()
+    static int trimStart(CharSequence value, int start, int end) {
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    static int trimEnd(CharSequence value, int start, int end) {
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // @return the number, or -1 when one of the chars is not a digit
+    private static int digits(CharSequence value, int start, int count) {
+        int number = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static boolean equalsTrimmed(CharSequence value, String expected) {
+        int start = trimStart(value, 0, value.length());
+        int end = trimEnd(value, start, value.length());
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toUpperCase(value.charAt(start + i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import java.util.EnumSet;
+
+/**
+ * Driver license elements the parser extracts, whatever AAMVA code a card uses for them.
+ *
+ * originalName is the key of the element in BarcodeParser.getOriginalData(), dataName its key in the parsed
+ * data, or null when the element is only used to derive others (ex) NAME is split into first/middle/last.
+ */
+public enum AamvaElement {
+    NAME("Name", null),
+    LAST_NAME("LastName", "lastName"),
+    FIRST_NAME("FirstName", "firstName"),
+    MIDDLE_NAME("MiddleName", "middleName"),
+
+    SEX("Sex", "sex"),
+    HEIGHT("Height", "height"),
+    EYE_COLOR("EyeColor", "eyeColor"),
+
+    ADDRESS("Address", "address"),
+    CITY("City", "city"),
+    STATE("State", "state"),
+    ZIP_CODE("ZipCode", "zipcode"),
+    COUNTRY("Country", null),
+
+    DOB("DOB", "dob"),
+    DRIVER_LICENSE_NUMBER("DriverLicenseNumber", "driverLicenseNumber"),
+    LICENSE_ISSUED_DATE("LicenseIssuedDate", "licenseIssuedDate"),
+    LICENSE_EXPIRATION_DATE("LicenseExpirationDate", "licenseExpirationDate");
+
+    private final String originalName;
+    private final String dataName;
+
+    AamvaElement(String originalName, String dataName) {
+        this.originalName = originalName;
+        this.dataName = dataName;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public String getDataName() {
+        return dataName;
+    }
+
+    /**
+     * Parse a fields= projection into the elements it asks for.
+     * Each field is a dataName, an originalName or an AAMVA code, case does not matter.
+     *
+     *          (ex) "dob,licenseExpirationDate"  -> [DOB, LICENSE_EXPIRATION_DATE]
+     *               "DBB,DBA"                    -> [DOB, LICENSE_EXPIRATION_DATE]
+     *               "name"                       -> [FIRST_NAME, MIDDLE_NAME, LAST_NAME]
+     *
+     * COUNTRY only decides the date layout and is not part of the parsed data, so it cannot be requested.
+     *
+     * @return requested elements, or null when fields is null or blank, meaning every element
+     * @throws IllegalArgumentException for a field that matches no element, or one that is never returned
+     * **/
+    public static EnumSet<AamvaElement> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        EnumSet<AamvaElement> elements = EnumSet.noneOf(AamvaElement.class);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            AamvaElement element = fromName(name);
+            if (element == null) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            if (element.dataName == null && element != NAME) {
+                throw new IllegalArgumentException("Field is not returned: " + name);
+            }
+            if (element == NAME) {
+                elements.add(FIRST_NAME);
+                elements.add(MIDDLE_NAME);
+                elements.add(LAST_NAME);
+            } else {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    private static AamvaElement fromName(String name) {
+        for (AamvaElement element : values()) {
+            if (name.equalsIgnoreCase(element.dataName) || name.equalsIgnoreCase(element.originalName)) {
+                return element;
+            }
+        }
+        return AamvaSchemaRegistry.DEFAULT.latest().element(name.toUpperCase());
+    }
+}
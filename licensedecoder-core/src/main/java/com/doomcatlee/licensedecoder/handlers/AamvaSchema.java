@@ -0,0 +1,112 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+/**
+ * Element codes of one AAMVA version, optionally adjusted for one issuer, compiled into flat lookup tables.
+ *
+ * DL/ID elements all start with "D" and jurisdiction elements with "Z", so each table only has one slot
+ * per second and third letter of the code:
+ *
+ *          (ex) "DBB" -> elements[('B' - 'A') * 26 + ('B' - 'A')] = DOB
+ *               "ZOA" -> jurisdictionNames[('O' - 'A') * 26 + ('A' - 'A')], the name the issuer gave it
+ *
+ * A fallback code only fills an element no primary code has filled (ex) the residence city DAN is only
+ * used when the mailing city DAI is missing, whatever their order in the barcode.
+ */
+public final class AamvaSchema {
+    private static final int LETTERS = 26 * 26;
+    private static final int DL = 'D' - 'A';
+    private static final int JURISDICTION = 'Z' - 'A';
+
+    private final AamvaElement[] elements;
+    private final boolean[] fallbacks;
+    private final String[] jurisdictionNames;
+
+    private AamvaSchema(Builder builder) {
+        this.elements = builder.elements.clone();
+        this.fallbacks = builder.fallbacks.clone();
+        this.jurisdictionNames = builder.jurisdictionNames.clone();
+    }
+
+    /**
+     * @param code code index from AamvaTokenizer.code()
+     * @return element the code maps to, null for unknown and jurisdiction codes
+     */
+    public AamvaElement element(int code) {
+        return code >= 0 && code / LETTERS == DL ? elements[code % LETTERS] : null;
+    }
+
+    public AamvaElement element(CharSequence code) {
+        return element(AamvaTokenizer.code(code));
+    }
+
+    public boolean isFallback(int code) {
+        return code >= 0 && code / LETTERS == DL && fallbacks[code % LETTERS];
+    }
+
+    public static boolean isJurisdiction(int code) {
+        return code >= 0 && code / LETTERS == JURISDICTION;
+    }
+
+    /**
+     * @return name the issuer gives a jurisdiction element, null when it has none (ex) unknown "Z" codes
+     */
+    public String jurisdictionName(int code) {
+        return isJurisdiction(code) ? jurisdictionNames[code % LETTERS] : null;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        System.arraycopy(elements, 0, builder.elements, 0, LETTERS);
+        System.arraycopy(fallbacks, 0, builder.fallbacks, 0, LETTERS);
+        System.arraycopy(jurisdictionNames, 0, builder.jurisdictionNames, 0, LETTERS);
+        return builder;
+    }
+
+    public static final class Builder {
+        private final AamvaElement[] elements = new AamvaElement[LETTERS];
+        private final boolean[] fallbacks = new boolean[LETTERS];
+        private final String[] jurisdictionNames = new String[LETTERS];
+
+        private Builder() {
+        }
+
+        public Builder element(String code, AamvaElement element) {
+            return put(code, element, false);
+        }
+
+        public Builder fallback(String code, AamvaElement element) {
+            return put(code, element, true);
+        }
+
+        public Builder remove(String code) {
+            return put(code, null, false);
+        }
+
+        public Builder jurisdiction(String code, String name) {
+            int index = AamvaTokenizer.code(code);
+            if (!isJurisdiction(index)) {
+                throw new IllegalArgumentException("Not a jurisdiction element code: " + code);
+            }
+            jurisdictionNames[index % LETTERS] = name;
+            return this;
+        }
+
+        private Builder put(String code, AamvaElement element, boolean fallback) {
+            int index = AamvaTokenizer.code(code);
+            if (index < 0 || index / LETTERS != DL) {
+                throw new IllegalArgumentException("Not a DL/ID element code: " + code);
+            }
+            elements[index % LETTERS] = element;
+            fallbacks[index % LETTERS] = element != null && fallback;
+            return this;
+        }
+
+        public AamvaSchema build() {
+            return new AamvaSchema(this);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Element schemas per AAMVA version (0-10) and per issuer identification number (IIN).
+ *
+ * Every schema is compiled when the registry is built, picking one for a barcode is an array index for
+ * the version plus a binary search over the few issuers that have overrides.
+ *
+ *          Version 1       names in DAA (full name) or DAB/DAC/DAD
+ *          Version 2-3     DCS family name, DCT given names
+ *          Version 4-10    DCS family name, DAC first name, DAD middle name
+ *
+ * Codes of the other versions are kept as fallbacks, so a card mixing versions still parses.
+ *
+ * Only these version schemas ship: DEFAULT, which the decode pipeline uses, has no issuer overrides.
+ * Issuer deviations are left to whoever knows the cards they read, through Builder#issuer on a registry of
+ * their own passed to BarcodeParser.
+ */
+public final class AamvaSchemaRegistry {
+    public static final int MAX_VERSION = 10;
+
+    public static final AamvaSchemaRegistry DEFAULT = builder().build();
+
+    private final AamvaSchema[] versions;
+    private final int[] issuers; // sorted
+    private final AamvaSchema[][] issuerVersions;
+
+    private AamvaSchemaRegistry(Builder builder) {
+        versions = new AamvaSchema[MAX_VERSION + 1];
+        for (int version = 0; version <= MAX_VERSION; version++) {
+            versions[version] = builder.versions[version].build();
+        }
+
+        issuers = new int[builder.issuers.size()];
+        issuerVersions = new AamvaSchema[issuers.length][];
+        int i = 0;
+        for (Map.Entry<Integer, Consumer<AamvaSchema.Builder>> issuer : builder.issuers.entrySet()) {
+            issuers[i] = issuer.getKey();
+            issuerVersions[i] = new AamvaSchema[MAX_VERSION + 1];
+            for (int version = 0; version <= MAX_VERSION; version++) {
+                AamvaSchema.Builder schema = versions[version].toBuilder();
+                issuer.getValue().accept(schema);
+                issuerVersions[i][version] = schema.build();
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Schema of a barcode, from its header. Versions past MAX_VERSION use the latest schema.
+     */
+    public AamvaSchema schema(int version, int issuerIdentificationNumber) {
+        int index = Math.max(0, Math.min(version, MAX_VERSION));
+        int issuer = Arrays.binarySearch(issuers, issuerIdentificationNumber);
+        return issuer >= 0 ? issuerVersions[issuer][index] : versions[index];
+    }
+
+    public AamvaSchema latest() {
+        return versions[MAX_VERSION];
+    }
+
+    /**
+     * Registry builder, preloaded with the standard version schemas.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private final AamvaSchema.Builder[] versions = new AamvaSchema.Builder[MAX_VERSION + 1];
+        private final TreeMap<Integer, Consumer<AamvaSchema.Builder>> issuers = new TreeMap<>();
+
+        private Builder() {
+            for (int version = 0; version <= MAX_VERSION; version++) {
+                versions[version] = standard(version);
+            }
+        }
+
+        /**
+         * Adjust the schema of the given versions, bounds included.
+         */
+        public Builder version(int from, int to, Consumer<AamvaSchema.Builder> schema) {
+            for (int version = from; version <= to; version++) {
+                schema.accept(versions[version]);
+            }
+            return this;
+        }
+
+        /**
+         * Adjust the schema of every version for one issuer (ex) 636029 for Oregon,
+         * typically to name its jurisdiction ("Z") elements or remap a code it uses differently.
+         * No issuer is adjusted by default.
+         */
+        public Builder issuer(int issuerIdentificationNumber, Consumer<AamvaSchema.Builder> schema) {
+            issuers.merge(issuerIdentificationNumber, schema, Consumer::andThen);
+            return this;
+        }
+
+        public AamvaSchemaRegistry build() {
+            return new AamvaSchemaRegistry(this);
+        }
+
+        private static AamvaSchema.Builder standard(int version) {
+            AamvaSchema.Builder schema = AamvaSchema.builder()
+                    .element("DAQ", AamvaElement.DRIVER_LICENSE_NUMBER)
+                    .element("DBA", AamvaElement.LICENSE_EXPIRATION_DATE)
+                    .element("DBB", AamvaElement.DOB)
+                    .element("DBD", AamvaElement.LICENSE_ISSUED_DATE)
+                    .element("DBC", AamvaElement.SEX)
+                    .element("DAU", AamvaElement.HEIGHT)
+                    .element("DAY", AamvaElement.EYE_COLOR)
+                    .element("DCG", AamvaElement.COUNTRY)
+
+                    // Mailing address, the residence address only fills in what is missing
+                    .element("DAG", AamvaElement.ADDRESS)
+                    .element("DAI", AamvaElement.CITY)
+                    .element("DAJ", AamvaElement.STATE)
+                    .element("DAK", AamvaElement.ZIP_CODE)
+                    .fallback("DAL", AamvaElement.ADDRESS)
+                    .fallback("DAN", AamvaElement.CITY)
+                    .fallback("DAO", AamvaElement.STATE)
+                    .fallback("DAP", AamvaElement.ZIP_CODE)
+
+                    .element("DAA", AamvaElement.NAME)
+                    .element("DAD", AamvaElement.MIDDLE_NAME);
+
+            if (version <= 1) {
+                schema.element("DAB", AamvaElement.LAST_NAME)
+                        .element("DAC", AamvaElement.FIRST_NAME)
+                        .fallback("DCS", AamvaElement.LAST_NAME)
+                        .fallback("DCT", AamvaElement.FIRST_NAME);
+            } else if (version <= 3) {
+                schema.element("DCS", AamvaElement.LAST_NAME)
+                        .element("DCT", AamvaElement.FIRST_NAME)
+                        .fallback("DAB", AamvaElement.LAST_NAME)
+                        .fallback("DAC", AamvaElement.FIRST_NAME);
+            } else {
+                schema.element("DCS", AamvaElement.LAST_NAME)
+                        .element("DAC", AamvaElement.FIRST_NAME)
+                        .fallback("DAB", AamvaElement.LAST_NAME)
+                        .fallback("DCT", AamvaElement.FIRST_NAME);
+            }
+            return schema;
+        }
+    }
+}
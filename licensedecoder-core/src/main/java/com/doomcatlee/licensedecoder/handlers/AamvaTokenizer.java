@@ -0,0 +1,105 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+/**
+ * Single pass scanner over the data elements of one AAMVA subfile.
+ *
+ * Elements are split on the data element separator declared in the header, and the scan stops at the
+ * segment terminator. Nothing is copied while scanning: each element is reported as its code plus the
+ * start and end of its value in the barcode, and a String is only created when value() is called.
+ *
+ *          (ex) "DAQD123\nDCSLEE\r"
+ *
+ *              code "DAQ", value [3, 7)    -> "D123"
+ *              code "DCS", value [11, 14)  -> "LEE"
+ *
+ */
+public final class AamvaTokenizer {
+
+    /**
+     * Number of possible element codes, three letters A-Z.
+     */
+    public static final int CODE_COUNT = 26 * 26 * 26;
+
+    private final CharSequence barcode;
+    private final char dataElementSeparator;
+    private final char segmentTerminator;
+    private final int end;
+    private int position;
+    private int elementStart;
+    private int elementEnd;
+
+    public AamvaTokenizer(CharSequence barcode, int start, int end,
+                          char dataElementSeparator, char segmentTerminator) {
+        this.barcode = barcode;
+        this.position = Math.max(0, start);
+        this.end = Math.min(end, barcode.length());
+        this.dataElementSeparator = dataElementSeparator;
+        // Some scanners rewrite the terminator to the separator, then the subfile length is the only bound
+        this.segmentTerminator = segmentTerminator == dataElementSeparator ? 0 : segmentTerminator;
+    }
+
+    /**
+     * Move to the next element that has a value.
+     *
+     * @return false once the segment terminator or the end of the subfile is reached
+     */
+    public boolean next() {
+        while (position < end) {
+            int start = position;
+            int index = start;
+            char c = 0;
+            while (index < end) {
+                c = barcode.charAt(index);
+                if (c == dataElementSeparator || (segmentTerminator != 0 && c == segmentTerminator)) {
+                    break;
+                }
+                index++;
+            }
+            position = index < end && segmentTerminator != 0 && c == segmentTerminator ? end : index + 1;
+
+            // Three characters of code and at least one of value, anything shorter is padding
+            if (index - start > 3) {
+                elementStart = start;
+                elementEnd = index;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Code of the current element as an index in [0, CODE_COUNT), or -1 when it is not three letters.
+     */
+    public int code() {
+        return code(barcode.charAt(elementStart), barcode.charAt(elementStart + 1), barcode.charAt(elementStart + 2));
+    }
+
+    public int valueStart() {
+        return elementStart + 3;
+    }
+
+    public int valueEnd() {
+        return elementEnd;
+    }
+
+    public String value() {
+        return barcode.subSequence(elementStart + 3, elementEnd).toString();
+    }
+
+    /**
+     * Index of a three letter element code (ex) "DAQ", or -1 when it is not three letters.
+     */
+    public static int code(CharSequence code) {
+        return code.length() == 3 ? code(code.charAt(0), code.charAt(1), code.charAt(2)) : -1;
+    }
+
+    public static int code(char first, char second, char third) {
+        int a = first - 'A';
+        int b = second - 'A';
+        int c = third - 'A';
+        if (a < 0 || a >= 26 || b < 0 || b >= 26 || c < 0 || c >= 26) {
+            return -1;
+        }
+        return (a * 26 + b) * 26 + c;
+    }
+}
@@ -3,50 +3,67 @@ package com.doomcatlee.licensedecoder.handlers;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class BarcodeParser {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     protected HashMap<String, String> headers;
-    protected HashMap<String, String> originalData;
+    protected EnumMap<AamvaElement, String> elements; // Built from the spans below when first asked for
+    protected String barcode;
+    protected int[] valueStarts; // Span of each element value in the barcode, by AamvaElement.ordinal(), -1 when missing
+    protected int[] valueEnds;
+    protected AamvaCodecs.DateLayout dateLayout;
     protected HashMap<String, String> data;
-    static final HashMap<String, String> fields; // Mapping fields from AAMVA standards
-    static {
-        fields = new HashMap<>();
-
-        fields.put("DAA", "Name");
-        fields.put("DLDAA", "Name");
-        fields.put("DAB", "LastName");
-        fields.put("DCS", "LastName");
-        fields.put("DAC", "FirstName");
-        fields.put("DCT", "FirstName");
-        fields.put("DAD", "MiddleName");
-
-        fields.put("DBC", "Sex");
-        fields.put("DAU", "Height");
-        fields.put("DAY", "EyeColor");
-
-        fields.put("DAG", "Address");
-        fields.put("DAI", "City");
-        fields.put("DAN", "City");
-        fields.put("DAJ", "State");
-        fields.put("DAO", "State");
-        fields.put("DAK", "ZipCode");
-        fields.put("DAP", "Zipcode");
-        fields.put("DCG", "Country");
-
-        fields.put("DBB", "DOB");
-        fields.put("DAQ", "DriverLicenseNumber");
-        fields.put("DBD", "LicenseIssuedDate");
-        fields.put("DBA", "LicenseExpirationDate");
-    }
-
-    // Upon init, parse all data and save as new object
+    protected char dataElementSeparator;
+    protected char segmentTerminator;
+    protected EnumSet<AamvaElement> extracted; // Elements copied out of the barcode, null for all of them
+    protected AamvaSchema schema;
+    protected LinkedHashMap<String, String> jurisdictionElements;
+    protected String[] subfileTypes;
+    protected int[] subfileOffsets;
+    protected int[] subfileLengths;
+    protected final AamvaSchemaRegistry registry;
+
+    // Upon init, parse headers and elements, the data map is only built when asked for
     public BarcodeParser(String barcode) {
+        this(barcode, null);
+    }
+
+    /**
+     * Only copy the given elements out of the barcode (ex) [DOB, LICENSE_EXPIRATION_DATE] for an age check,
+     * every other element is skipped while scanning. A null set extracts every element.
+     *
+     * First, middle and last names also extract NAME, since they are split out of it on some cards,
+     * and dates extract COUNTRY, which decides their layout.
+     * **/
+    public BarcodeParser(String barcode, Set<AamvaElement> fields) {
+        this(barcode, fields, AamvaSchemaRegistry.DEFAULT);
+    }
+
+    public BarcodeParser(String barcode, Set<AamvaElement> fields, AamvaSchemaRegistry registry) {
+        this.registry = registry;
+        if (fields != null) {
+            extracted = fields.isEmpty() ? EnumSet.noneOf(AamvaElement.class) : EnumSet.copyOf(fields);
+            if (fields.contains(AamvaElement.FIRST_NAME) || fields.contains(AamvaElement.MIDDLE_NAME)
+                    || fields.contains(AamvaElement.LAST_NAME)) {
+                extracted.add(AamvaElement.NAME);
+            }
+            if (fields.contains(AamvaElement.DOB) || fields.contains(AamvaElement.LICENSE_ISSUED_DATE)
+                    || fields.contains(AamvaElement.LICENSE_EXPIRATION_DATE)) {
+                extracted.add(AamvaElement.COUNTRY);
+            }
+        }
+        this.barcode = barcode;
         headers = decodeHeaders(barcode);
-        originalData = decodeContent(barcode);
-        data = decodeData();
+        decodeContent(barcode);
     }
 
     /**
@@ -58,14 +75,17 @@ public class BarcodeParser {
      *                  "SubfileLength": "123"
      *              }
      *
+     * The offset and length are those of the first (DL/ID) subfile, every subfile designator is kept
+     * in subfileTypes/subfileOffsets/subfileLengths. The element schema is picked from the version and IIN.
+     *
      * **/
     protected HashMap<String, String> decodeHeaders(String barcode) {
         HashMap headerMap = new HashMap();
 
         // declare header variables
-        char complianceIndicator, dataElementSeparator, recordSeparator, segmentTerminator;
-        String fileType, entries, subfileType;
-        int versionNumber, issuerIdentificationNumber, jurisdictionVersion, offset, length;
+        char complianceIndicator, recordSeparator;
+        String fileType;
+        int versionNumber, issuerIdentificationNumber, jurisdictionVersion, entries, designators;
 
         // extract headers
         complianceIndicator = barcode.charAt(0);
@@ -81,69 +101,110 @@ public class BarcodeParser {
         headerMap.put("VersionNumber", versionNumber);
 
         if (versionNumber <= 1) {
-            entries = barcode.substring(17, 19);
-            subfileType = barcode.substring(19, 21);
-            offset = Integer.parseInt(barcode.substring(21, 25));
-            length = Integer.parseInt(barcode.substring(25, 29));
+            entries = Integer.parseInt(barcode.substring(17, 19));
+            designators = 19;
         } else {
             jurisdictionVersion = Integer.parseInt(barcode.substring(17, 19));
             headerMap.put("JurisdictionVerstion", jurisdictionVersion);
-            entries = barcode.substring(19, 21);
-            subfileType = barcode.substring(21, 23);
-            headerMap.put("SubfileType", subfileType);
-            offset = Integer.parseInt(barcode.substring(23, 27));
-            length = Integer.parseInt(barcode.substring(27, 31));
+            entries = Integer.parseInt(barcode.substring(19, 21));
+            designators = 21;
         }
-
-        if (fileType.equals("ANSI ")) {
-            offset += 2;
+        schema = registry.schema(versionNumber, issuerIdentificationNumber);
+
+        // Subfile designators (ex) "DL00410278", "ZO03190008", a truncated list keeps what could be read
+        entries = Math.max(1, Math.min(entries, (barcode.length() - designators) / 10));
+        subfileTypes = new String[entries];
+        subfileOffsets = new int[entries];
+        subfileLengths = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            int designator = designators + i * 10;
+            subfileTypes[i] = barcode.substring(designator, designator + 2);
+            subfileOffsets[i] = Integer.parseInt(barcode.substring(designator + 2, designator + 6));
+            subfileLengths[i] = Integer.parseInt(barcode.substring(designator + 6, designator + 10));
+
+            // Skip the subfile type (ex) "DL" in front of the first element
+            if ((i == 0 && fileType.equals("ANSI ")) || barcode.startsWith(subfileTypes[i], subfileOffsets[i])) {
+                subfileOffsets[i] += 2;
+            }
         }
 
-        headerMap.put("SubfileOffset", offset);
-        headerMap.put("SubfileLength", length);
+        if (versionNumber > 1) {
+            headerMap.put("SubfileType", subfileTypes[0]);
+        }
+        headerMap.put("SubfileOffset", subfileOffsets[0]);
+        headerMap.put("SubfileLength", subfileLengths[0]);
 
         return headerMap;
     }
 
     /**
-     * Decode content of barcodedecoder String to HashMap object.
+     * Locate the element values of the barcode, nothing is copied out of it.
      *
      * First layer of parsing:
-     *          1. Based on length and offset, loop through keys and values.
-     *          2. Take the first three char of each line, which represents code (ex) "DAQ", "DBB"
-     *          3. Return HashMap of code and value
+     *          1. Scan the subfile once, splitting elements on the separators declared in the header.
+     *          2. The first three char of each element is the code (ex) "DAQ", "DBB"
+     *          3. For codes the schema maps, and part of the projection if any, the value span is kept
+     *          4. Jurisdiction ("Z") subfiles are scanned the same way into jurisdictionElements
      *
      *          (ex)
-     *              {
-     *                  "DAQ": "Dong Kun Lee",
-     *                  "DBB": "08211993"
-     *              }
+     *              "...DAADong Kun Lee\nDBB08211993\n..."
+     *
+     *              NAME: [52, 64)
+     *              DOB:  [68, 76)
      *
      * **/
-    protected HashMap<String, String> decodeContent(String barcode) {
+    protected void decodeContent(String barcode) {
         int offset = getSubfileOffset();
         int length = getSubfileLength();
 
-        // content
-        String content = barcode.substring(offset, offset + length);
-
-        // store in name value pair
-        String[] lines = content.split("\n");
-        HashMap<String, String> hashMap = new HashMap<>();
-        for (String l : lines) {
-            if (l.length() > 3) {
-                String key = l.substring(0, 3);
-                String value = l.substring(3);
-                if (fields.get(key) != null) {
-                    hashMap.put(fields.get(key), value);
+        valueStarts = new int[AamvaElement.values().length];
+        valueEnds = new int[valueStarts.length];
+        Arrays.fill(valueStarts, -1);
+
+        AamvaTokenizer tokenizer = new AamvaTokenizer(barcode, offset, offset + length,
+                dataElementSeparator, segmentTerminator);
+        while (tokenizer.next()) {
+            int code = tokenizer.code();
+            AamvaElement element = schema.element(code);
+            if (element != null && (extracted == null || extracted.contains(element))
+                    && !(schema.isFallback(code) && valueStarts[element.ordinal()] >= 0)) {
+                valueStarts[element.ordinal()] = tokenizer.valueStart();
+                valueEnds[element.ordinal()] = tokenizer.valueEnd();
+            }
+        }
+
+        // A projection only ever asks for DL/ID elements
+        jurisdictionElements = new LinkedHashMap<>();
+        if (extracted == null) {
+            for (int i = 1; i < subfileTypes.length; i++) {
+                if (subfileTypes[i].startsWith("Z")) {
+                    decodeJurisdictionContent(barcode, subfileOffsets[i], subfileLengths[i]);
                 }
             }
         }
-        return hashMap;
+    }
+
+    // Raw value of an element, null when the barcode does not have it
+    protected String value(AamvaElement element) {
+        int start = valueStarts[element.ordinal()];
+        return start < 0 ? null : barcode.substring(start, valueEnds[element.ordinal()]);
+    }
+
+    // Named jurisdiction elements are keyed by the name the schema gives them, the others by their code
+    protected void decodeJurisdictionContent(String barcode, int offset, int length) {
+        AamvaTokenizer tokenizer = new AamvaTokenizer(barcode, offset, offset + length,
+                dataElementSeparator, segmentTerminator);
+        while (tokenizer.next()) {
+            int code = tokenizer.code();
+            if (AamvaSchema.isJurisdiction(code)) {
+                String name = schema.jurisdictionName(code);
+                String key = name != null ? name : barcode.substring(tokenizer.valueStart() - 3, tokenizer.valueStart());
+                jurisdictionElements.put(key, tokenizer.value());
+            }
+        }
     }
 
     protected HashMap<String, String> decodeData() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         HashMap hashMap = new HashMap();
 
         hashMap.put("firstName", getFirstName());
@@ -158,10 +219,10 @@ public class BarcodeParser {
         hashMap.put("height", getHeight());
         hashMap.put("sex", getSex());
 
-        hashMap.put("dob", getDOB().format(formatter));
-        hashMap.put("licenseIssuedDate", getLicenseIssuedDate().format(formatter));
+        hashMap.put("dob", getDOB().format(DATE_FORMATTER));
+        hashMap.put("licenseIssuedDate", getLicenseIssuedDate().format(DATE_FORMATTER));
         hashMap.put("licenseExpirationDate",
-                getLicenseExpirationDate().format(formatter));
+                getLicenseExpirationDate().format(DATE_FORMATTER));
 
         return hashMap;
     }
@@ -190,17 +251,17 @@ public class BarcodeParser {
      *
      */
     public String getFirstName() {
-        String firstName = originalData.get("FirstName");
+        String firstName = value(AamvaElement.FIRST_NAME);
         // Grab firstName if it exists
         if (firstName != null && !firstName.isEmpty()) {
             firstName = firstName.trim();
 
         // Parse Name field
         } else {
-            String name = originalData.get("Name");
+            String name = value(AamvaElement.NAME);
 
             // Oregon
-            if (name.contains(",")) {
+            if (name != null && name.contains(",")) {
                 firstName = parseFirstNameWithComma();
                 return firstName;
             }
@@ -239,7 +300,7 @@ public class BarcodeParser {
     **/
     public String parseFirstNameWithComma() {
         String firstName = "";
-        String name = originalData.get("Name");
+        String name = value(AamvaElement.NAME);
 
         if (name != null && !name.isEmpty()) {
             String[] splitNames = name.split(",");
@@ -274,12 +335,12 @@ public class BarcodeParser {
      *
      */
     public String getLastName() {
-        String lastName = originalData.get("LastName");
+        String lastName = value(AamvaElement.LAST_NAME);
         if (lastName != null && !lastName.isEmpty()) {
             lastName = lastName.trim();
         } else {
-            String name = originalData.get("Name");
-            if (name.contains(",")) {
+            String name = value(AamvaElement.NAME);
+            if (name != null && name.contains(",")) {
                 lastName = parseLastNameWithComma();
                 return lastName;
             }
@@ -310,7 +371,7 @@ public class BarcodeParser {
      **/
     String parseLastNameWithComma() {
         String lastName = "";
-        String name = originalData.get("Name");
+        String name = value(AamvaElement.NAME);
 
         if (name != null && !name.isEmpty()) {
             String[] splitNames = name.split(",");
@@ -339,13 +400,13 @@ public class BarcodeParser {
      *
      */
     public String getMiddleName() {
-        String middleName = originalData.get("MiddleName");
+        String middleName = value(AamvaElement.MIDDLE_NAME);
         if (middleName != null && !middleName.isEmpty()) {
             middleName = middleName.trim();
         } else {
-            String name = originalData.get("Name");
+            String name = value(AamvaElement.NAME);
 
-            if (name.contains(",")) {
+            if (name != null && name.contains(",")) {
                 middleName = parseMiddleNameWithComma();
                 return middleName;
             }
@@ -380,7 +441,7 @@ public class BarcodeParser {
      **/
     public String parseMiddleNameWithComma() {
         String middleName = "";
-        String name = originalData.get("Name");
+        String name = value(AamvaElement.NAME);
 
         if (name != null && !name.isEmpty()) {
             String[] splitNames = name.split(",");
@@ -404,7 +465,7 @@ public class BarcodeParser {
      * @return 2-Letter state abbreviations
      */
     public String getState() {
-        String state = originalData.get("State");
+        String state = value(AamvaElement.STATE);
         if (state != null && !state.isEmpty()) {
             state = state.trim().toUpperCase();
         } else {
@@ -419,7 +480,7 @@ public class BarcodeParser {
      * @return Address
      */
     public String getAddress() {
-        String address = originalData.get("Address");
+        String address = value(AamvaElement.ADDRESS);
         if (address != null && !address.isEmpty()) {
             address = address.trim();
         } else {
@@ -434,7 +495,7 @@ public class BarcodeParser {
      * @return City
      */
     public String getCity() {
-        String city = originalData.get("City");
+        String city = value(AamvaElement.CITY);
         if (city != null && !city.isEmpty()) {
             city = city.trim();
         } else {
@@ -449,7 +510,7 @@ public class BarcodeParser {
      * @return ZIP code
      */
     public String getZipCode() {
-        String zipCode = originalData.get("ZipCode");
+        String zipCode = value(AamvaElement.ZIP_CODE);
         if (zipCode != null && !zipCode.isEmpty()) {
             zipCode = zipCode.trim();
         } else {
@@ -464,7 +525,7 @@ public class BarcodeParser {
      * @return Country
      */
     public String getCountry() {
-        String country = originalData.get("Country");
+        String country = value(AamvaElement.COUNTRY);
         if (country != null && !country.isEmpty()) {
             country = country.trim().toUpperCase();
         } else {
@@ -479,7 +540,7 @@ public class BarcodeParser {
      * @return Eye color
      */
     public String getEyeColor() {
-        String eyeColor = originalData.get("EyeColor");
+        String eyeColor = value(AamvaElement.EYE_COLOR);
         if (eyeColor != null && !eyeColor.isEmpty()) {
             eyeColor = eyeColor.trim();
         } else {
@@ -494,13 +555,11 @@ public class BarcodeParser {
      * @return Driver's license number
      */
     public String getDriverLicenseNumber() {
-        String licenseNumber = originalData.get("DriverLicenseNumber");
-        if (licenseNumber != null && !licenseNumber.isEmpty()) {
-            licenseNumber = licenseNumber.trim().replaceAll("[.]", "");
-        } else {
-            licenseNumber = "";
+        int start = valueStarts[AamvaElement.DRIVER_LICENSE_NUMBER.ordinal()];
+        if (start < 0) {
+            return "";
         }
-        return licenseNumber;
+        return AamvaCodecs.parseLicenseNumber(barcode, start, valueEnds[AamvaElement.DRIVER_LICENSE_NUMBER.ordinal()]);
     }
 
     /**
@@ -510,20 +569,11 @@ public class BarcodeParser {
      * @return Sex
      */
     public String getSex() {
-        String sex = originalData.get("Sex");
-        if (sex != null && !sex.isEmpty()) {
-            sex = sex.trim();
-            if (sex.equals("1")) {
-                sex = "M";
-            } else if (sex.equals("2")) {
-                sex = "F";
-            } else {
-                sex = sex.toUpperCase();
-            }
-        } else {
-            sex = "";
+        int start = valueStarts[AamvaElement.SEX.ordinal()];
+        if (start < 0) {
+            return "";
         }
-        return sex;
+        return AamvaCodecs.parseSex(barcode, start, valueEnds[AamvaElement.SEX.ordinal()]);
     }
 
     /**
@@ -532,14 +582,7 @@ public class BarcodeParser {
      * @return DOB
      */
     public LocalDate getDOB() {
-        LocalDate localDate = null;
-        String dob = originalData.get("DOB");
-        if (dob != null && !dob.isEmpty()) {
-            localDate = parseDate(dob);
-        } else {
-            // Not found
-        }
-        return localDate;
+        return parseDate(AamvaElement.DOB);
     }
 
     /**
@@ -548,13 +591,7 @@ public class BarcodeParser {
      * @return LicenseIssuedDate
      */
     public LocalDate getLicenseIssuedDate() {
-        LocalDate localDate = null;
-        String licenseIssuedDate = originalData.get("LicenseIssuedDate");
-        if (licenseIssuedDate != null && !licenseIssuedDate.isEmpty()) {
-            localDate = parseDate(licenseIssuedDate);
-        }
-
-        return localDate;
+        return parseDate(AamvaElement.LICENSE_ISSUED_DATE);
     }
 
     /**
@@ -563,36 +600,43 @@ public class BarcodeParser {
      * @return LicenseExpirationDate
      */
     public LocalDate getLicenseExpirationDate() {
-        LocalDate localDate = null;
-        String licenseExpirationDate = originalData.get("LicenseExpirationDate");
-        if (licenseExpirationDate != null && !licenseExpirationDate.isEmpty()) {
-            localDate = parseDate(licenseExpirationDate);
-        } else {
-            // Not found
-        }
-        return localDate;
+        return parseDate(AamvaElement.LICENSE_EXPIRATION_DATE);
     }
 
     /**
      * Get parsed Height
      *
-     * @return Height
+     * @return Height, NaN when the barcode does not have it
      */
     public double getHeight() {
-        String height = originalData.get("Height");
-        if (height != null && !height.isEmpty()) {
-            height = height.trim().replaceAll("[\\D]", ""); // remove any non-digits
-        } else {
-            height = "";
+        int start = valueStarts[AamvaElement.HEIGHT.ordinal()];
+        if (start < 0) {
+            return Double.NaN;
+        }
+        return AamvaCodecs.parseHeight(barcode, start, valueEnds[AamvaElement.HEIGHT.ordinal()]);
+    }
+
+    // Date element in the layout of this barcode, null when the barcode does not have it
+    protected LocalDate parseDate(AamvaElement element) {
+        int start = valueStarts[element.ordinal()];
+        if (start < 0) {
+            return null;
         }
-        return Double.parseDouble(height);
+        return AamvaCodecs.parseDate(barcode, start, valueEnds[element.ordinal()], getDateLayout());
     }
 
     protected LocalDate parseDate(String date) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-        LocalDate parsedDate = LocalDate.parse(date, formatter);
+        return AamvaCodecs.parseDate(date, 0, date.length(), getDateLayout());
+    }
 
-        return parsedDate;
+    /**
+     * Layout of the date elements, from the AAMVA version and the country (DCG) of the card.
+     */
+    public AamvaCodecs.DateLayout getDateLayout() {
+        if (dateLayout == null) {
+            dateLayout = AamvaCodecs.DateLayout.of(getVersionNumber(), value(AamvaElement.COUNTRY));
+        }
+        return dateLayout;
     }
 
     protected String formatDate(Calendar date) {
@@ -609,11 +653,46 @@ public class BarcodeParser {
         return headers;
     }
 
+    public EnumMap<AamvaElement, String> getElements() {
+        if (elements == null) {
+            EnumMap<AamvaElement, String> enumMap = new EnumMap<>(AamvaElement.class);
+            for (AamvaElement element : AamvaElement.values()) {
+                String value = value(element);
+                if (value != null) {
+                    enumMap.put(element, value);
+                }
+            }
+            elements = enumMap;
+        }
+        return elements;
+    }
+
+    /**
+     * Jurisdiction ("Z" subfile) elements keyed by their name in the schema, or their code (ex) "ZOA".
+     * Empty when the parser was given a projection.
+     * **/
+    public LinkedHashMap<String, String> getJurisdictionData() {
+        return jurisdictionElements;
+    }
+
+    public AamvaSchema getSchema() {
+        return schema;
+    }
+
+    // Raw element values keyed by AamvaElement.getOriginalName(), then jurisdiction elements, built on every call
     public HashMap<String, String> getOriginalData() {
+        HashMap<String, String> originalData = new HashMap<>();
+        for (Map.Entry<AamvaElement, String> element : getElements().entrySet()) {
+            originalData.put(element.getKey().getOriginalName(), element.getValue());
+        }
+        originalData.putAll(jurisdictionElements);
         return originalData;
     }
 
     public HashMap<String, String> getData() {
+        if (data == null) {
+            data = decodeData();
+        }
         return data;
     }
 
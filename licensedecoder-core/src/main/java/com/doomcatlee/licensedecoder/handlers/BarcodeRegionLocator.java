@@ -0,0 +1,185 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Finds the likely PDF417 region of a photo so only that part has to be binarized and decoded.
+ *
+ * 1. Sample the image down to roughly TARGET_DIMENSION pixels on its longest side.
+ * 2. Split the samples into CELL x CELL cells and count light/dark transitions per cell.
+ *    PDF417 bars are parallel, so a barcode cell has many transitions across the bars and few along them,
+ *    while text has many transitions both ways and plastic/background has almost none.
+ * 3. Keep the largest connected group of barcode-like cells and crop to its bounding box plus a margin.
+ */
+public final class BarcodeRegionLocator {
+
+    private static final int TARGET_DIMENSION = 800;
+    private static final int CELL = 8;
+    private static final int MIN_DYNAMIC_RANGE = 32;
+    private static final int MIN_TRANSITIONS = 12;
+    private static final int MIN_CELLS = 6;
+    private static final int MARGIN_CELLS = 2;
+    private static final double MARGIN_RATIO = 0.1;
+    private static final double MAX_AREA_RATIO = 0.8;
+
+    private BarcodeRegionLocator() {
+    }
+
+    /**
+     * Locate the barcode region of the source.
+     *
+     * @return cropped source, or null when no region was found or cropping would not save much
+     */
+    public static LuminanceSource locate(LuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int step = Math.max(width, height) / TARGET_DIMENSION;
+        // Small images are cheap to decode as they are, and too coarse to sample reliably
+        if (!source.isCropSupported() || step < 2) {
+            return null;
+        }
+
+        int sampleWidth = width / step;
+        int sampleHeight = height / step;
+        int[] samples = sample(source, step, sampleWidth, sampleHeight);
+
+        int cellColumns = sampleWidth / CELL;
+        int cellRows = sampleHeight / CELL;
+        boolean[] barcodeCells = new boolean[cellColumns * cellRows];
+        for (int cy = 0; cy < cellRows; cy++) {
+            for (int cx = 0; cx < cellColumns; cx++) {
+                barcodeCells[cy * cellColumns + cx] = isBarcodeCell(samples, sampleWidth, cx * CELL, cy * CELL);
+            }
+        }
+
+        int[] box = largestComponent(barcodeCells, cellColumns, cellRows);
+        if (box == null) {
+            return null;
+        }
+
+        // Cells back to full resolution pixels, with a margin for the quiet zone and the start/stop patterns,
+        // whose wide bars have too few transitions to be marked themselves
+        int cellSize = CELL * step;
+        int boxWidth = (box[2] + 1 - box[0]) * cellSize;
+        int boxHeight = (box[3] + 1 - box[1]) * cellSize;
+        int margin = Math.max(MARGIN_CELLS * cellSize, (int) (MARGIN_RATIO * Math.max(boxWidth, boxHeight)));
+        int left = Math.max(0, box[0] * cellSize - margin);
+        int top = Math.max(0, box[1] * cellSize - margin);
+        int right = Math.min(width, (box[2] + 1) * cellSize + margin);
+        int bottom = Math.min(height, (box[3] + 1) * cellSize + margin);
+
+        long cropArea = (long) (right - left) * (bottom - top);
+        if (cropArea > MAX_AREA_RATIO * width * height) {
+            return null;
+        }
+        return source.crop(left, top, right - left, bottom - top);
+    }
+
+    // Nearest neighbour sampling keeps thin bars at full contrast, averaging would wash them out to gray
+    private static int[] sample(LuminanceSource source, int step, int sampleWidth, int sampleHeight) {
+        int[] samples = new int[sampleWidth * sampleHeight];
+        byte[] row = null;
+        for (int sy = 0; sy < sampleHeight; sy++) {
+            row = source.getRow(sy * step, row);
+            int offset = sy * sampleWidth;
+            for (int sx = 0; sx < sampleWidth; sx++) {
+                samples[offset + sx] = row[sx * step] & 0xFF;
+            }
+        }
+        return samples;
+    }
+
+    private static boolean isBarcodeCell(int[] samples, int sampleWidth, int left, int top) {
+        int min = 255;
+        int max = 0;
+        for (int y = top; y < top + CELL; y++) {
+            for (int x = left; x < left + CELL; x++) {
+                int value = samples[y * sampleWidth + x];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        if (max - min < MIN_DYNAMIC_RANGE) {
+            return false;
+        }
+
+        int threshold = (min + max) >> 1;
+        int horizontal = 0;
+        int vertical = 0;
+        for (int y = top; y < top + CELL; y++) {
+            for (int x = left; x < left + CELL; x++) {
+                boolean dark = samples[y * sampleWidth + x] < threshold;
+                if (x > left && dark != samples[y * sampleWidth + x - 1] < threshold) {
+                    horizontal++;
+                }
+                if (y > top && dark != samples[(y - 1) * sampleWidth + x] < threshold) {
+                    vertical++;
+                }
+            }
+        }
+
+        // Either orientation counts, portrait shots turn the bars sideways
+        int across = Math.max(horizontal, vertical);
+        int along = Math.min(horizontal, vertical);
+        return across >= MIN_TRANSITIONS && across >= 2 * along;
+    }
+
+    /**
+     * Bounding box {minX, minY, maxX, maxY} in cells of the largest 8-connected group of marked cells,
+     * or null when the largest group is smaller than MIN_CELLS.
+     */
+    private static int[] largestComponent(boolean[] cells, int columns, int rows) {
+        int[] component = new int[cells.length];
+        int[] stack = new int[cells.length];
+        int[] best = null;
+        int bestSize = MIN_CELLS - 1;
+        int label = 0;
+
+        for (int start = 0; start < cells.length; start++) {
+            if (!cells[start] || component[start] != 0) {
+                continue;
+            }
+            label++;
+            int size = 0;
+            int minX = columns;
+            int minY = rows;
+            int maxX = -1;
+            int maxY = -1;
+
+            int depth = 0;
+            stack[depth++] = start;
+            component[start] = label;
+            while (depth > 0) {
+                int index = stack[--depth];
+                int x = index % columns;
+                int y = index / columns;
+                size++;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int nx = x + dx;
+                        int ny = y + dy;
+                        if (nx < 0 || ny < 0 || nx >= columns || ny >= rows) {
+                            continue;
+                        }
+                        int neighbour = ny * columns + nx;
+                        if (cells[neighbour] && component[neighbour] == 0) {
+                            component[neighbour] = label;
+                            stack[depth++] = neighbour;
+                        }
+                    }
+                }
+            }
+
+            if (size > bestSize) {
+                bestSize = size;
+                best = new int[]{minX, minY, maxX, maxY};
+            }
+        }
+        return best;
+    }
+}
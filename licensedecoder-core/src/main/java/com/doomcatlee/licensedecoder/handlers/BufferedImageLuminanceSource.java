@@ -0,0 +1,286 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.LuminanceSource;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * This LuminanceSource implementation is meant for J2SE clients and our blackbox unit tests.
+ *
+ * @author dswitkin@google.com (Daniel Switkin)
+ * @author Sean Owen
+ * @author code@elektrowolle.de (Wolfgang Jung)
+ */
+public final class BufferedImageLuminanceSource extends LuminanceSource {
+
+  private static final double MINUS_45_IN_RADIANS = -0.7853981633974483; // Math.toRadians(-45.0)
+
+  private final BufferedImage image;
+  private final int left;
+  private final int top;
+
+  public BufferedImageLuminanceSource(BufferedImage image) {
+    this(image, 0, 0, image.getWidth(), image.getHeight());
+  }
+
+  public BufferedImageLuminanceSource(BufferedImage image, int left, int top, int width, int height) {
+    super(width, height);
+
+    if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+      this.image = image;
+      this.left = left;
+      this.top = top;
+    } else {
+      int sourceWidth = image.getWidth();
+      int sourceHeight = image.getHeight();
+      if (left + width > sourceWidth || top + height > sourceHeight) {
+        throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+      }
+
+      // Only the crop is converted, into a gray image of exactly width x height
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+      byte[] luminances = ((DataBufferByte) this.image.getRaster().getDataBuffer()).getData();
+      if (!convertRaster(image, left, top, width, height, luminances)) {
+        convertRGB(image, left, top, width, height, luminances);
+      }
+      this.left = 0;
+      this.top = 0;
+    }
+  }
+
+  /**
+   * Read the pixels straight out of the data buffer for the common interleaved and packed image types.
+   *
+   * @return false when the image type or layout is not handled here
+   */
+  private static boolean convertRaster(BufferedImage image, int left, int top, int width, int height,
+                                       byte[] luminances) {
+    WritableRaster raster = image.getRaster();
+    SampleModel sampleModel = raster.getSampleModel();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    if (dataBuffer.getNumBanks() != 1) {
+      return false;
+    }
+    // Rasters of sub-images are translated into their parent's data
+    int originX = left - raster.getSampleModelTranslateX();
+    int originY = top - raster.getSampleModelTranslateY();
+
+    switch (image.getType()) {
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR: {
+        if (!(sampleModel instanceof ComponentSampleModel) || !(dataBuffer instanceof DataBufferByte)) {
+          return false;
+        }
+        ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+        byte[] data = ((DataBufferByte) dataBuffer).getData();
+        int scanlineStride = componentModel.getScanlineStride();
+        int pixelStride = componentModel.getPixelStride();
+        int[] bandOffsets = componentModel.getBandOffsets();
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int alphaOffset = bandOffsets.length > 3 ? bandOffsets[3] : -1;
+
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+          int index = dataBuffer.getOffset() + (originY + y) * scanlineStride + originX * pixelStride;
+          for (int x = 0; x < width; x++, index += pixelStride) {
+            if (alphaOffset >= 0 && data[index + alphaOffset] == 0) {
+              luminances[offset++] = (byte) 0xFF; // fully-transparent is white, see convertRGB
+            } else {
+              luminances[offset++] = (byte) luminance(data[index + redOffset] & 0xFF,
+                                                      data[index + greenOffset] & 0xFF,
+                                                      data[index + blueOffset] & 0xFF);
+            }
+          }
+        }
+        return true;
+      }
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB: {
+        if (!(sampleModel instanceof SinglePixelPackedSampleModel) || !(dataBuffer instanceof DataBufferInt)) {
+          return false;
+        }
+        int[] data = ((DataBufferInt) dataBuffer).getData();
+        int scanlineStride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+        // The unused top byte of INT_RGB pixels is not alpha, those pixels are always opaque
+        boolean hasAlpha = image.getType() == BufferedImage.TYPE_INT_ARGB;
+
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+          int index = dataBuffer.getOffset() + (originY + y) * scanlineStride + originX;
+          for (int x = 0; x < width; x++) {
+            int pixel = data[index + x];
+            if (hasAlpha && (pixel & 0xFF000000) == 0) {
+              luminances[offset++] = (byte) 0xFF;
+            } else {
+              luminances[offset++] = (byte) luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+            }
+          }
+        }
+        return true;
+      }
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Any other image type goes through the color model one row at a time.
+   */
+  private static void convertRGB(BufferedImage image, int left, int top, int width, int height, byte[] luminances) {
+    int[] buffer = new int[width];
+    int offset = 0;
+    for (int y = top; y < top + height; y++) {
+      image.getRGB(left, y, width, 1, buffer, 0, width);
+      for (int x = 0; x < width; x++) {
+        int pixel = buffer[x];
+
+        // The color of fully-transparent pixels is irrelevant. They are often, technically, fully-transparent
+        // black (0 alpha, and then 0 RGB). They are often used, of course as the "white" area in a
+        // barcodedecoder image. Force any such pixel to be white:
+        if ((pixel & 0xFF000000) == 0) {
+          pixel = 0xFFFFFFFF; // = white
+        }
+
+        luminances[offset++] = (byte) luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+      }
+    }
+  }
+
+  // .299R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC),
+  // (306*R) >> 10 is approximately equal to R*0.299, and so on.
+  // 0x200 >> 10 is 0.5, it implements rounding.
+  private static int luminance(int red, int green, int blue) {
+    return (306 * red + 601 * green + 117 * blue + 0x200) >> 10;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    // The underlying raster of image consists of bytes with the luminance values
+    image.getRaster().getDataElements(left, top + y, width, 1, row);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    int area = width * height;
+    byte[] matrix = new byte[area];
+    // The underlying raster of image consists of area bytes with the luminance values
+    image.getRaster().getDataElements(left, top, width, height, matrix);
+    return matrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new BufferedImageLuminanceSource(image, this.left + left, this.top + top, width, height);
+  }
+
+  /**
+   * This is always true, since the image is a gray-scale image.
+   *
+   * @return true
+   */
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  /**
+   * Rotations by 90 degrees are a plain array remap, see GrayLuminanceSource.
+   */
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return toGrayLuminanceSource().rotateCounterClockwise();
+  }
+
+  /**
+   * The same luminance values as a byte[] backed source. Shares the gray image's array when its raster is a
+   * plain row-by-row array, which is always the case for converted images, and copies the crop otherwise.
+   */
+  public GrayLuminanceSource toGrayLuminanceSource() {
+    WritableRaster raster = image.getRaster();
+    SampleModel sampleModel = raster.getSampleModel();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    if (dataBuffer instanceof DataBufferByte
+        && dataBuffer.getNumBanks() == 1
+        && dataBuffer.getOffset() == 0
+        && raster.getSampleModelTranslateX() == 0
+        && raster.getSampleModelTranslateY() == 0
+        && sampleModel instanceof ComponentSampleModel
+        && ((ComponentSampleModel) sampleModel).getPixelStride() == 1
+        && ((ComponentSampleModel) sampleModel).getScanlineStride() == image.getWidth()) {
+      return new GrayLuminanceSource(((DataBufferByte) dataBuffer).getData(), image.getWidth(), image.getHeight(),
+                                     left, top, getWidth(), getHeight());
+    }
+    return new GrayLuminanceSource(getMatrix(), getWidth(), getHeight());
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    int width = getWidth();
+    int height = getHeight();
+
+    int oldCenterX = left + width / 2;
+    int oldCenterY = top + height / 2;
+
+    // Rotate 45 degrees counterclockwise.
+    AffineTransform transform = AffineTransform.getRotateInstance(MINUS_45_IN_RADIANS, oldCenterX, oldCenterY);
+
+    int sourceDimension = Math.max(image.getWidth(), image.getHeight());
+    BufferedImage rotatedImage = new BufferedImage(sourceDimension, sourceDimension, BufferedImage.TYPE_BYTE_GRAY);
+
+    // Draw the original image into rotated, via transformation
+    Graphics2D g = rotatedImage.createGraphics();
+    g.drawImage(image, transform, null);
+    g.dispose();
+
+    int halfDimension = Math.max(width, height) / 2;
+    int newLeft = Math.max(0, oldCenterX - halfDimension);
+    int newTop = Math.max(0, oldCenterY - halfDimension);
+    int newRight = Math.min(sourceDimension - 1, oldCenterX + halfDimension);
+    int newBottom = Math.min(sourceDimension - 1, oldCenterY + halfDimension);
+
+    return new BufferedImageLuminanceSource(rotatedImage, newLeft, newTop, newRight - newLeft, newBottom - newTop);
+  }
+
+}
@@ -0,0 +1,68 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * ImageInputStream over the remaining bytes of a buffer, heap or memory-mapped. Seeks are plain position
+ * changes, so ImageIO needs neither a cache file nor a cache in memory.
+ *
+ * Closing twice is allowed: ImageIO.read closes the stream itself unless it returns null.
+ */
+final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer view;
+    private final int base;
+    private final int length;
+    private boolean closed;
+
+    ByteBufferImageInputStream(ByteBuffer buffer) {
+        this.view = buffer.duplicate();
+        this.base = buffer.position();
+        this.length = buffer.remaining();
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return view.get(base + (int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - streamPos);
+        view.position(base + (int) streamPos);
+        view.get(b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.LuminanceSource;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * LuminanceSource over a plain byte[] of gray values, one byte per pixel, row by row.
+ *
+ * Crops share the array. Rotations by 90, 180 and 270 degrees copy the crop once with an index remap,
+ * no BufferedImage or Graphics2D involved.
+ */
+public final class GrayLuminanceSource extends LuminanceSource {
+
+    private final byte[] luminances;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+
+    public GrayLuminanceSource(byte[] luminances, int width, int height) {
+        this(luminances, width, height, 0, 0, width, height);
+    }
+
+    public GrayLuminanceSource(byte[] luminances, int dataWidth, int dataHeight,
+                               int left, int top, int width, int height) {
+        super(width, height);
+        if (left < 0 || top < 0 || left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        if (luminances.length < dataWidth * dataHeight) {
+            throw new IllegalArgumentException("Luminance data is smaller than " + dataWidth + "x" + dataHeight);
+        }
+        this.luminances = luminances;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        System.arraycopy(luminances, (top + y) * dataWidth + left, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+
+        // Callers of getMatrix only read it, so the whole array can be handed out as is
+        if (width == dataWidth && height == dataHeight) {
+            return luminances;
+        }
+
+        byte[] matrix = new byte[width * height];
+        int inputOffset = top * dataWidth + left;
+        if (width == dataWidth) {
+            System.arraycopy(luminances, inputOffset, matrix, 0, width * height);
+            return matrix;
+        }
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(luminances, inputOffset, matrix, y * width, width);
+            inputOffset += dataWidth;
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new GrayLuminanceSource(luminances, dataWidth, dataHeight,
+                this.left + left, this.top + top, width, height);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    /**
+     * Pixel (x, y) moves to (y, width - 1 - x).
+     */
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] rotated = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            int inputOffset = (top + y) * dataWidth + left;
+            int outputOffset = (width - 1) * height + y;
+            for (int x = 0; x < width; x++) {
+                rotated[outputOffset] = luminances[inputOffset + x];
+                outputOffset -= height;
+            }
+        }
+        return new GrayLuminanceSource(rotated, height, width);
+    }
+
+    /**
+     * Pixel (x, y) moves to (width - 1 - x, height - 1 - y).
+     */
+    public LuminanceSource rotate180() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] rotated = new byte[width * height];
+        int outputOffset = width * height - 1;
+        for (int y = 0; y < height; y++) {
+            int inputOffset = (top + y) * dataWidth + left;
+            for (int x = 0; x < width; x++) {
+                rotated[outputOffset--] = luminances[inputOffset + x];
+            }
+        }
+        return new GrayLuminanceSource(rotated, width, height);
+    }
+
+    /**
+     * Pixel (x, y) moves to (height - 1 - y, x).
+     */
+    public LuminanceSource rotateClockwise() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] rotated = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            int inputOffset = (top + y) * dataWidth + left;
+            int outputOffset = height - 1 - y;
+            for (int x = 0; x < width; x++) {
+                rotated[outputOffset] = luminances[inputOffset + x];
+                outputOffset += height;
+            }
+        }
+        return new GrayLuminanceSource(rotated, height, width);
+    }
+
+    /**
+     * Arbitrary angles need interpolation, this rare path stays on the Graphics2D implementation.
+     */
+    @Override
+    public LuminanceSource rotateCounterClockwise45() {
+        BufferedImage image = new BufferedImage(dataWidth, dataHeight, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(luminances, 0, data, 0, dataWidth * dataHeight);
+        return new BufferedImageLuminanceSource(image, left, top, getWidth(), getHeight()).rotateCounterClockwise45();
+    }
+}
@@ -0,0 +1,100 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads barcode images from files and streams into buffers, and decodes them from memory.
+ *
+ * 1. Files are read through a FileChannel that is closed before read returns. Files of MAP_THRESHOLD bytes
+ *    and more are memory-mapped instead of copied onto the heap; a mapping holds no file descriptor.
+ * 2. Images are decoded from the buffer through ByteBufferImageInputStream. ImageIO.read(InputStream)
+ *    would wrap the stream in a cache, a temporary file by default, for every image.
+ */
+public final class ImageIngest {
+
+    static final int MAP_THRESHOLD = 1 << 20;
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private ImageIngest() {
+    }
+
+    /**
+     * Read the whole file, memory-mapped when it is large.
+     *
+     * @return buffer positioned at the first byte of the file
+     */
+    public static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_SIZE) {
+                throw new IOException("Image too large: " + file + " (" + size + " bytes)");
+            }
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    // Truncated while reading
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Read the stream to its end. Closing it is left to the caller.
+     */
+    public static ByteBuffer read(InputStream in) throws IOException {
+        byte[] bytes = new byte[8192];
+        int length = 0;
+        int count;
+        while ((count = in.read(bytes, length, bytes.length - length)) >= 0) {
+            length += count;
+            if (length == bytes.length) {
+                if (length == MAX_SIZE) {
+                    throw new IOException("Image too large");
+                }
+                bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_SIZE, (long) length * 2));
+            }
+        }
+        return ByteBuffer.wrap(bytes, 0, length);
+    }
+
+    /**
+     * Decode the remaining bytes of the buffer as an image. The position of buffer is left as it is.
+     *
+     * @return image, or null when no ImageIO reader understands the bytes
+     */
+    public static BufferedImage decode(ByteBuffer image) throws IOException {
+        ByteBufferImageInputStream in = new ByteBufferImageInputStream(image);
+        try {
+            return ImageIO.read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copy the remaining bytes of the buffer, a heap buffer that wraps a whole array gives that array back.
+     */
+    public static byte[] toBytes(ByteBuffer image) {
+        if (image.hasArray() && image.arrayOffset() == 0 && image.position() == 0
+                && image.remaining() == image.array().length) {
+            return image.array();
+        }
+        byte[] bytes = new byte[image.remaining()];
+        image.duplicate().get(bytes);
+        return bytes;
+    }
+}
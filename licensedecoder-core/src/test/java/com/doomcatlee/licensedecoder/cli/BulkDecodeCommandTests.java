@@ -0,0 +1,191 @@
+package com.doomcatlee.licensedecoder.cli;
+
+import com.doomcatlee.licensedecoder.component.DecodeProfile;
+import com.doomcatlee.licensedecoder.component.DecodeProperties;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import com.doomcatlee.licensedecoder.component.DriverLicenseCsvWriter;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import com.doomcatlee.licensedecoder.handlers.BarcodeImages;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParserTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+public class BulkDecodeCommandTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DriverLicenseComponent driverLicenseComponent;
+    private Path scans;
+
+    @Before
+    public void setUp() throws Exception {
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setCacheMaxEntries(0);
+        driverLicenseComponent = new DriverLicenseComponent(decodeProperties);
+
+        scans = folder.newFolder("scans").toPath();
+        Files.createDirectories(scans.resolve("2019"));
+        String barcode = BarcodeParserTests.barcode(8, "DAQ123", "DCSLEE", "DACDONG", "DAU070 IN", "DBB08211993");
+        ImageIO.write(BarcodeImages.pure(barcode, 3),
+                "png", scans.resolve("2019/front.png").toFile());
+        Files.write(scans.resolve("2019/broken.jpg"), new byte[]{1, 2, 3});
+        Files.write(scans.resolve("notes.txt"), "not an image".getBytes("UTF-8"));
+    }
+
+    @After
+    public void tearDown() {
+        driverLicenseComponent.shutdown();
+    }
+
+    @Test
+    public void walksTheTreeAndWritesOneLinePerImage() throws Exception {
+        StringWriter out = new StringWriter();
+        StringWriter checkpoint = new StringWriter();
+        BulkDecodeCommand command = command(null, out, checkpoint, new HashSet<>());
+        command.decodeTree(scans);
+
+        List<String> lines = sorted(out.toString());
+        assertEquals(2, lines.size());
+        assertEquals("{\"fileName\":\"" + scans.resolve("2019/broken.jpg") + "\",\"result\":\"Unsupported image format\"}",
+                lines.get(0));
+        assertTrue(lines.get(1), lines.get(1).startsWith("{\"fileName\":\"" + scans.resolve("2019/front.png")
+                + "\",\"firstName\":\"DONG\""));
+        assertEquals(1, command.getDecoded());
+        assertEquals(1, command.getFailed());
+        assertEquals(2, sorted(checkpoint.toString()).size());
+    }
+
+    @Test
+    public void checkpointsImagesOnlyAfterTheirRowsAreFlushed() throws Exception {
+        StringWriter flushed = new StringWriter();
+        StringWriter out = new StringWriter() {
+            @Override
+            public void flush() {
+                flushed.getBuffer().setLength(0);
+                flushed.append(getBuffer());
+            }
+        };
+        List<String> checkpointed = new ArrayList<>();
+        StringWriter checkpoint = new StringWriter() {
+            @Override
+            public StringWriter append(CharSequence names) {
+                for (String name : names.toString().split("\n")) {
+                    assertTrue(name, flushed.toString().contains("{\"fileName\":\"" + name + "\""));
+                    checkpointed.add(name);
+                }
+                return super.append(names);
+            }
+        };
+        command(null, out, checkpoint, new HashSet<>()).decodeTree(scans);
+
+        assertEquals(2, checkpointed.size());
+        assertEquals(sorted(checkpoint.toString()), sorted(String.join("\n", checkpointed)));
+    }
+
+    @Test
+    public void skipsImagesInTheCheckpoint() throws Exception {
+        StringWriter out = new StringWriter();
+        Set<String> done = new HashSet<>(Collections.singleton(scans.resolve("2019/front.png").toString()));
+        BulkDecodeCommand command = command(null, out, new StringWriter(), done);
+        command.decodeTree(scans);
+
+        assertEquals(1, sorted(out.toString()).size());
+        assertEquals(1, command.getSkipped());
+        assertEquals(0, command.getDecoded());
+    }
+
+    @Test
+    public void writesCsvColumnsOfTheProjection() throws Exception {
+        EnumSet<AamvaElement> fields = EnumSet.of(AamvaElement.DOB, AamvaElement.LAST_NAME);
+        StringWriter out = new StringWriter();
+        DriverLicenseCsvWriter csvWriter = new DriverLicenseCsvWriter(fields);
+        csvWriter.writeHeader(out);
+        BulkDecodeCommand command = new BulkDecodeCommand(driverLicenseComponent, DecodeProfile.BALANCED, fields,
+                csvWriter, out, null, new HashSet<>(), 2);
+        command.decodeTree(scans.resolve("2019"));
+
+        List<String> lines = Arrays.asList(out.toString().split("\r\n"));
+        assertEquals("fileName,lastName,dob,result", lines.get(0));
+        assertTrue(lines.contains(scans.resolve("2019/front.png") + ",LEE,1993-08-21,"));
+        assertTrue(lines.contains(scans.resolve("2019/broken.jpg") + ",,,Unsupported image format"));
+    }
+
+    @Test
+    public void stopsWhenTheOutputCannotBeWritten() throws Exception {
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) throws IOException {
+                throw new IOException("No space left on device");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        StringWriter checkpoint = new StringWriter();
+        BulkDecodeCommand command = new BulkDecodeCommand(driverLicenseComponent, DecodeProfile.BALANCED, null, null,
+                out, checkpoint, new HashSet<>(), 1);
+        try {
+            command.decodeTree(scans);
+            fail("The run went on after a failed write");
+        } catch (IOException ex) {
+            assertEquals("Cannot write the output: No space left on device", ex.getMessage());
+        }
+        // Nothing was written, so nothing is checkpointed
+        assertEquals("", checkpoint.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOptions() {
+        BulkDecodeCommand.parseOptions(new String[]{"--in=scans", "--thread=4"});
+    }
+
+    @Test
+    public void rejectsThreadsThatAreNotANumber() {
+        try {
+            BulkDecodeCommand.parseThreads("four");
+            fail("--threads=four was accepted");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("--threads is not a number: four", ex.getMessage());
+        }
+        assertEquals(4, BulkDecodeCommand.parseThreads("4"));
+    }
+
+    private BulkDecodeCommand command(Set<AamvaElement> fields, StringWriter out, StringWriter checkpoint,
+                                      Set<String> done) {
+        return new BulkDecodeCommand(driverLicenseComponent, DecodeProfile.BALANCED, fields, null, out, checkpoint,
+                done, 2);
+    }
+
+    private static List<String> sorted(String text) {
+        List<String> lines = Arrays.asList(text.trim().isEmpty() ? new String[0] : text.trim().split("\n"));
+        Collections.sort(lines);
+        return lines;
+    }
+}
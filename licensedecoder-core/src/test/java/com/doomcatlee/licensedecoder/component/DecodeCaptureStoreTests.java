@@ -0,0 +1,115 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DecodeCaptureStoreTests {
+    private static final byte[] KEY = DecodeCaptureStore.parseKey("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void capturesFailedDecodesEncrypted() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        DecodeCaptureStore store = new DecodeCaptureStore(dir, KEY, 60000, true, 1 << 20, new DecodeMetrics());
+        byte[] image = "not really an image".getBytes("UTF-8");
+
+        DecodeTrace trace = new DecodeTrace(image.length);
+        trace.record(DecodeMetrics.Stage.IMAGE_READ, System.nanoTime() - 3000000);
+        trace.setOutcome(DecodeMetrics.Outcome.UNSUPPORTED_IMAGE);
+        assertTrue(store.offer(image, DecodeProfile.FAST, EnumSet.of(AamvaElement.DOB), trace));
+        store.flush(5000);
+
+        List<Path> captures = DecodeCaptureStore.list(dir);
+        assertEquals(1, captures.size());
+        assertFalse(new String(Files.readAllBytes(captures.get(0)), "ISO-8859-1").contains("not really"));
+
+        DecodeCaptureStore.Capture capture = DecodeCaptureStore.read(captures.get(0), KEY);
+        assertArrayEquals(image, capture.getImage());
+        assertEquals(DecodeProfile.FAST, capture.getProfile());
+        assertEquals(EnumSet.of(AamvaElement.DOB), capture.getFields());
+        assertEquals(DecodeMetrics.Outcome.UNSUPPORTED_IMAGE, capture.getOutcome());
+        assertNull(capture.getStrategy());
+        assertTrue(capture.ran(DecodeMetrics.Stage.IMAGE_READ));
+        assertTrue(capture.getNanos(DecodeMetrics.Stage.IMAGE_READ) >= 3000000);
+        assertFalse(capture.ran(DecodeMetrics.Stage.READ));
+
+        try {
+            DecodeCaptureStore.read(captures.get(0), new byte[16]);
+            fail("Read with the wrong key");
+        } catch (IOException expected) {
+            // AES-GCM authentication fails
+        }
+        store.shutdown();
+    }
+
+    @Test
+    public void skipsFastSuccessesAndDeletesOldestBeyondMaxBytes() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        DecodeCaptureStore store = new DecodeCaptureStore(dir, KEY, 0, false, 2500, new DecodeMetrics());
+
+        DecodeCaptureStore slowOnly = new DecodeCaptureStore(dir, KEY, 60000, false, 2500, new DecodeMetrics());
+        DecodeTrace fast = new DecodeTrace(10);
+        fast.setOutcome(DecodeMetrics.Outcome.SUCCESS);
+        assertFalse(slowOnly.offer(new byte[10], DecodeProfile.FAST, null, fast));
+        slowOnly.shutdown();
+
+        for (int i = 0; i < 5; i++) {
+            DecodeTrace slow = new DecodeTrace(1000);
+            slow.setOutcome(DecodeMetrics.Outcome.SUCCESS);
+            store.offer(new byte[1000], DecodeProfile.BALANCED, null, slow);
+            store.flush(5000);
+        }
+
+        // About 1.1KB per capture, only the two newest fit
+        assertEquals(2, store.size());
+        assertEquals(2, DecodeCaptureStore.list(dir).size());
+        assertTrue(store.getTotalBytes() <= 2500);
+        assertNull(DecodeCaptureStore.read(DecodeCaptureStore.list(dir).get(0), KEY).getFields());
+        store.shutdown();
+    }
+
+    @Test
+    public void deletesPartialWritesLeftBehindAtStartup() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Files.write(dir.resolve("0001500000000-000001.capture.part"), new byte[100]);
+
+        DecodeCaptureStore store = new DecodeCaptureStore(dir, KEY, 0, false, 2500, new DecodeMetrics());
+        assertEquals(0, store.size());
+        assertFalse(Files.exists(dir.resolve("0001500000000-000001.capture.part")));
+        store.shutdown();
+    }
+
+    @Test
+    public void countsCapturesThatCannotBeWritten() throws Exception {
+        Path dir = folder.newFolder("captures").toPath();
+        DecodeMetrics metrics = new DecodeMetrics();
+        DecodeCaptureStore store = new DecodeCaptureStore(dir, KEY, 0, false, 2500, metrics);
+        Files.delete(dir);
+
+        DecodeTrace slow = new DecodeTrace(10);
+        slow.setOutcome(DecodeMetrics.Outcome.SUCCESS);
+        assertTrue(store.offer(new byte[10], DecodeProfile.FAST, null, slow));
+        store.flush(5000);
+
+        assertEquals(0, store.size());
+        assertEquals(1, metrics.getCount(DecodeMetrics.Failure.CAPTURE));
+        store.shutdown();
+    }
+}
@@ -0,0 +1,161 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DecodeJobComponentTests {
+
+    @Test
+    public void movesFromQueuedToRunningToDone() throws Exception {
+        GatedComponent decoder = new GatedComponent("{\"lastName\":\"LEE\"}");
+        DecodeJobComponent jobComponent = new DecodeJobComponent(decoder, properties(1, 1, 300));
+        try {
+            DecodeJob running = jobComponent.submit(new byte[0], DecodeProfile.FAST);
+            decoder.awaitStarted();
+            DecodeJob queued = jobComponent.submit(new byte[0], DecodeProfile.FAST);
+
+            assertEquals(DecodeJob.Status.RUNNING, running.getStatus());
+            assertEquals(DecodeJob.Status.QUEUED, queued.getStatus());
+            assertEquals("{\"jobId\":\"" + queued.getId() + "\",\"status\":\"QUEUED\"}", queued.toJson());
+
+            decoder.release();
+            awaitDone(running);
+            awaitDone(queued);
+            assertEquals("{\"lastName\":\"LEE\"}", running.getResult());
+            assertEquals("{\"jobId\":\"" + running.getId() + "\",\"status\":\"DONE\",\"data\":{\"lastName\":\"LEE\"}}",
+                    running.toJson());
+            assertEquals(running, jobComponent.getJob(running.getId()));
+        } finally {
+            decoder.release();
+            jobComponent.shutdown();
+        }
+    }
+
+    @Test
+    public void finishesAFailedDecodeWithAFailedResult() throws Exception {
+        GatedComponent decoder = new GatedComponent(null);
+        DecodeJobComponent jobComponent = new DecodeJobComponent(decoder, properties(1, 1, 300));
+        try {
+            decoder.release();
+            DecodeJob job = jobComponent.submit(new byte[0], DecodeProfile.FAST);
+            awaitDone(job);
+
+            assertEquals("{\"result\":\"Failed\"}", job.getResult());
+            assertEquals(1, decoder.getMetrics().getCount(DecodeMetrics.Failure.JOB));
+        } finally {
+            jobComponent.shutdown();
+        }
+    }
+
+    @Test
+    public void rejectsJobsWhenTheQueueIsFull() throws Exception {
+        GatedComponent decoder = new GatedComponent("{}");
+        DecodeJobComponent jobComponent = new DecodeJobComponent(decoder, properties(1, 1, 300));
+        try {
+            assertNotNull(jobComponent.submit(new byte[0], DecodeProfile.FAST));
+            decoder.awaitStarted();
+            assertNotNull(jobComponent.submit(new byte[0], DecodeProfile.FAST));
+
+            // One running, one queued
+            assertNull(jobComponent.submit(new byte[0], DecodeProfile.FAST));
+            assertEquals(2, jobComponent.size());
+        } finally {
+            decoder.release();
+            jobComponent.shutdown();
+        }
+    }
+
+    @Test
+    public void sweepsJobsOnceTheirResultExpires() throws Exception {
+        GatedComponent decoder = new GatedComponent("{}");
+        DecodeJobComponent jobComponent = new DecodeJobComponent(decoder, properties(1, 2, 1));
+        try {
+            DecodeJob done = jobComponent.submit(new byte[0], DecodeProfile.FAST);
+            decoder.awaitStarted();
+            DecodeJob queued = jobComponent.submit(new byte[0], DecodeProfile.FAST);
+            decoder.finishOne();
+            awaitDone(done);
+
+            // Results are kept for the TTL, unfinished jobs for as long as they take
+            jobComponent.removeExpiredJobs();
+            assertEquals(2, jobComponent.size());
+            Thread.sleep(TimeUnit.SECONDS.toMillis(1) + 100);
+            jobComponent.removeExpiredJobs();
+
+            assertEquals(1, jobComponent.size());
+            assertNull(jobComponent.getJob(done.getId()));
+            assertEquals(queued, jobComponent.getJob(queued.getId()));
+        } finally {
+            decoder.release();
+            jobComponent.shutdown();
+        }
+    }
+
+    private static DecodeProperties properties(int threads, int queueCapacity, long resultTtlSeconds) {
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setRaceParallelism(0);
+        decodeProperties.setJobThreads(threads);
+        decodeProperties.setJobQueueCapacity(queueCapacity);
+        decodeProperties.setJobResultTtlSeconds(resultTtlSeconds);
+        return decodeProperties;
+    }
+
+    private static void awaitDone(DecodeJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (job.getStatus() != DecodeJob.Status.DONE) {
+            assertTrue("Job " + job.getId() + " is still " + job.getStatus(), System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Holds each decode until the test lets it finish, then answers with a fixed result, or throws when it is null.
+     */
+    private static final class GatedComponent extends DriverLicenseComponent {
+        private final String result;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(1);
+
+        GatedComponent(String result) {
+            this.result = result;
+        }
+
+        @Override
+        public String decodeDriverLicense(byte[] barCodeBytes, DecodeProfile profile, Set<AamvaElement> fields) {
+            started.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (result == null) {
+                throw new IllegalStateException("Decoder failed");
+            }
+            return result;
+        }
+
+        void awaitStarted() throws InterruptedException {
+            assertTrue("No decode was started", started.await(10, TimeUnit.SECONDS));
+        }
+
+        // Lets the running decode finish, the next one waits again
+        void finishOne() {
+            CountDownLatch current = gate;
+            gate = new CountDownLatch(1);
+            current.countDown();
+        }
+
+        void release() {
+            gate.countDown();
+        }
+    }
+}
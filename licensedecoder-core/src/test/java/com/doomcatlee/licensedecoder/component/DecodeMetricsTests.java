@@ -0,0 +1,104 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.BarcodeParserTests;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecodeMetricsTests {
+
+    @Test
+    public void recordsStagesAndIssuerOfSuccessfulDecodes() throws Exception {
+        DecodeMetrics metrics = new DecodeMetrics();
+        DecodeTrace trace = metrics.start(2048);
+        assertEquals(1, metrics.getInFlight());
+
+        trace.record(DecodeMetrics.Stage.IMAGE_READ, System.nanoTime() - 5000000);
+        trace.setStrategy("full_frame");
+        trace.succeeded(new DriverLicense(BarcodeParserTests.barcode(8, "DAQ123", "DCSLEE", "DACDONG", "DAU070 IN")));
+        metrics.finish(trace);
+
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(1, metrics.getCount(DecodeMetrics.Outcome.SUCCESS));
+        assertEquals(1, metrics.getCount(DecodeMetrics.Stage.IMAGE_READ));
+        assertEquals(0, metrics.getCount(DecodeMetrics.Stage.RACE));
+
+        String text = prometheus(metrics);
+        assertTrue(text.contains("licensedecoder_decodes_by_issuer_total{iin=\"636029\",version=\"8\"} 1\n"));
+        assertTrue(text.contains("licensedecoder_decodes_by_strategy_total{strategy=\"full_frame\"} 1\n"));
+        assertTrue(text.contains("licensedecoder_stage_duration_seconds_count{stage=\"image_read\"} 1\n"));
+        assertTrue(text.contains("licensedecoder_upload_bytes_bucket{le=\"2048\"} 1\n"));
+        assertTrue(text.contains("licensedecoder_upload_bytes_bucket{le=\"1024\"} 0\n"));
+    }
+
+    @Test
+    public void countsFailuresByCause() throws Exception {
+        DriverLicenseComponent component = new DriverLicenseComponent();
+        try {
+            component.decodeDriverLicense(new byte[]{1, 2, 3});
+            component.decodeDriverLicense(png(new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_GRAY)));
+        } finally {
+            component.shutdown();
+        }
+
+        DecodeMetrics metrics = component.getMetrics();
+        assertEquals(1, metrics.getCount(DecodeMetrics.Outcome.UNSUPPORTED_IMAGE));
+        assertEquals(1, metrics.getCount(DecodeMetrics.Outcome.NOT_FOUND));
+        assertEquals(0, metrics.getCount(DecodeMetrics.Outcome.SUCCESS));
+        assertEquals(2, metrics.getCount(DecodeMetrics.Stage.IMAGE_READ));
+        assertEquals(1, metrics.getCount(DecodeMetrics.Stage.LUMINANCE));
+        assertEquals(0, metrics.getInFlight());
+    }
+
+    @Test
+    public void exportsFailuresAroundDecodes() throws Exception {
+        DecodeMetrics metrics = new DecodeMetrics();
+        metrics.recordFailure(DecodeMetrics.Failure.JOB);
+        metrics.recordFailure(DecodeMetrics.Failure.JOB);
+        metrics.recordFailure(DecodeMetrics.Failure.UPLOAD);
+
+        assertEquals(2, metrics.getCount(DecodeMetrics.Failure.JOB));
+        assertEquals(0, metrics.getCount(DecodeMetrics.Failure.BATCH));
+        String text = prometheus(metrics);
+        assertTrue(text, text.contains("licensedecoder_failures_total{cause=\"job\"} 2\n"));
+        assertTrue(text, text.contains("licensedecoder_failures_total{cause=\"upload\"} 1\n"));
+        assertTrue(text, text.contains("licensedecoder_failures_total{cause=\"batch\"} 0\n"));
+    }
+
+    @Test
+    public void histogramBucketsAreCumulative() throws Exception {
+        DecodeMetrics.Histogram histogram = new DecodeMetrics.Histogram(0, 3, 1);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(100);
+
+        StringWriter out = new StringWriter();
+        histogram.write("h", null, out);
+        assertEquals("h_bucket{le=\"1\"} 1\n"
+                + "h_bucket{le=\"2\"} 2\n"
+                + "h_bucket{le=\"4\"} 3\n"
+                + "h_bucket{le=\"8\"} 3\n"
+                + "h_bucket{le=\"+Inf\"} 4\n"
+                + "h_sum 106\n"
+                + "h_count 4\n", out.toString());
+    }
+
+    private static String prometheus(DecodeMetrics metrics) throws Exception {
+        StringWriter out = new StringWriter();
+        metrics.writePrometheus(out);
+        return out.toString();
+    }
+
+    private static byte[] png(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,86 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.BarcodeImages;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParserTests;
+import com.doomcatlee.licensedecoder.handlers.BufferedImageLuminanceSource;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.common.HybridBinarizer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DecodeProfileTests {
+
+    @Test
+    public void fastOnlyLooksForPdf417AndSkipsTheRace() {
+        List<Map<DecodeHintType, Object>> tiers = DecodeProfile.FAST.getTiers();
+
+        assertEquals(1, tiers.size());
+        assertEquals(Collections.singletonList(BarcodeFormat.PDF_417), tiers.get(0).get(DecodeHintType.POSSIBLE_FORMATS));
+        assertEquals(1, tiers.get(0).size());
+        assertFalse(DecodeProfile.FAST.isRaceStrategies());
+    }
+
+    @Test
+    public void balancedAddsTryHarder() {
+        List<Map<DecodeHintType, Object>> tiers = DecodeProfile.BALANCED.getTiers();
+
+        assertEquals(2, tiers.size());
+        assertSame(DecodeProfile.FAST.getTiers().get(0), tiers.get(0));
+        assertEquals(Boolean.TRUE, tiers.get(1).get(DecodeHintType.TRY_HARDER));
+        assertFalse(tiers.get(1).containsKey(DecodeHintType.PURE_BARCODE));
+        assertTrue(DecodeProfile.BALANCED.isRaceStrategies());
+    }
+
+    @Test
+    public void thoroughAddsPureBarcodeAndTheAamvaCharacterSet() {
+        List<Map<DecodeHintType, Object>> tiers = DecodeProfile.THOROUGH.getTiers();
+
+        assertEquals(3, tiers.size());
+        assertEquals(DecodeProfile.BALANCED.getTiers(), tiers.subList(0, 2));
+        Map<DecodeHintType, Object> exhaustive = tiers.get(2);
+        assertEquals(Collections.singletonList(BarcodeFormat.PDF_417), exhaustive.get(DecodeHintType.POSSIBLE_FORMATS));
+        assertEquals(Boolean.TRUE, exhaustive.get(DecodeHintType.TRY_HARDER));
+        assertEquals(Boolean.TRUE, exhaustive.get(DecodeHintType.PURE_BARCODE));
+        assertEquals("ISO-8859-1", exhaustive.get(DecodeHintType.CHARACTER_SET));
+        assertTrue(DecodeProfile.THOROUGH.isRaceStrategies());
+    }
+
+    @Test
+    public void everyProfileDecodesAPureBarcode() throws Exception {
+        String barcode = BarcodeParserTests.barcode(8, "DAQ123", "DCSLEE", "DACDONG");
+        for (DecodeProfile profile : DecodeProfile.values()) {
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(
+                    new BufferedImageLuminanceSource(BarcodeImages.pure(barcode, 3))));
+            assertEquals(profile.name(), barcode, profile.decode(bitmap).getText());
+        }
+    }
+
+    @Test
+    public void looksUpNamesCaseInsensitively() {
+        assertEquals(DecodeProfile.FAST, DecodeProfile.fromName("fast", DecodeProfile.THOROUGH));
+        assertEquals(DecodeProfile.BALANCED, DecodeProfile.fromName(" Balanced ", DecodeProfile.THOROUGH));
+        assertEquals(DecodeProfile.THOROUGH, DecodeProfile.fromName("", DecodeProfile.THOROUGH));
+        assertEquals(DecodeProfile.THOROUGH, DecodeProfile.fromName(null, DecodeProfile.THOROUGH));
+    }
+
+    @Test
+    public void rejectsUnknownNames() {
+        try {
+            DecodeProfile.fromName("fastest", DecodeProfile.BALANCED);
+            fail("fastest was accepted");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Unknown decode profile: fastest", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.doomcatlee.licensedecoder.component;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class DecodeResultCacheTests {
+
+    @Test
+    public void keyDependsOnBytesAndProfile() {
+        DecodeResultCache cache = new DecodeResultCache(10, 60000);
+        byte[] image = {1, 2, 3};
+
+        assertEquals(cache.key(image, DecodeProfile.FAST), cache.key(new byte[]{1, 2, 3}, DecodeProfile.FAST));
+        assertNotEquals(cache.key(image, DecodeProfile.FAST), cache.key(new byte[]{1, 2, 4}, DecodeProfile.FAST));
+        assertNotEquals(cache.key(image, DecodeProfile.FAST), cache.key(image, DecodeProfile.THOROUGH));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        DecodeResultCache cache = new DecodeResultCache(10, 60000);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "{}");
+        assertEquals("{}", cache.get("a"));
+        assertEquals("{}", cache.get("a"));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        DecodeResultCache cache = new DecodeResultCache(2, 60000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        DecodeResultCache cache = new DecodeResultCache(10, 20);
+        cache.put("a", "1");
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void expiresEntriesThatWereUsedRecently() throws InterruptedException {
+        DecodeResultCache cache = new DecodeResultCache(10, 200);
+        cache.put("a", "1");
+        Thread.sleep(120);
+        cache.put("b", "2");
+        // a is now the most recently used entry but the first to expire
+        assertEquals("1", cache.get("a"));
+        Thread.sleep(120);
+
+        assertEquals("2", cache.get("b"));
+        assertEquals(1, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void keepsAReplacedEntryForItsOwnTtl() throws InterruptedException {
+        DecodeResultCache cache = new DecodeResultCache(10, 200);
+        cache.put("a", "1");
+        Thread.sleep(120);
+        cache.put("a", "2");
+        Thread.sleep(120);
+
+        assertEquals("2", cache.get("a"));
+    }
+}
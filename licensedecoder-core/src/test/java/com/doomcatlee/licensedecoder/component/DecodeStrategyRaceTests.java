@@ -0,0 +1,169 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.BarcodeImages;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParserTests;
+import com.doomcatlee.licensedecoder.handlers.BufferedImageLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class DecodeStrategyRaceTests {
+
+    private static final String BARCODE = BarcodeParserTests.barcode(8, "DAQ123", "DCSLEE", "DACDONG", "DAU070 IN");
+
+    @Test
+    public void findsTheStrategyThatDecodes() throws Exception {
+        DecodeStrategyRace race = new DecodeStrategyRace(2, 1);
+        try {
+            DecodeTrace trace = new DecodeMetrics().start(0);
+            // White on black: only the inverted strategies can read it, hybrid is tried first
+            Result result = race.decode(new BufferedImageLuminanceSource(inverted()), DecodeProfile.BALANCED, trace);
+
+            assertEquals(BARCODE, result.getText());
+            assertEquals("hybrid_inverted", trace.getStrategy());
+        } finally {
+            race.shutdown();
+        }
+    }
+
+    @Test
+    public void firstSuccessWinsAndCancelsTheOtherAttempts() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        DecodeStrategyRace race = new DecodeStrategyRace(executor, 3);
+        AtomicInteger reads = new AtomicInteger();
+        // Rotation unsupported: global_histogram, hybrid_inverted and global_histogram_inverted are raced
+        LuminanceSource source = new CountingSource(new BufferedImageLuminanceSource(inverted()), reads);
+        DecodeTrace trace = new DecodeMetrics().start(0);
+
+        FutureTask<Result> decode = new FutureTask<>(() -> race.decode(source, DecodeProfile.BALANCED, trace));
+        Thread thread = new Thread(decode);
+        thread.start();
+        List<Runnable> attempts = executor.await(3);
+
+        // The attempt submitted second finishes first
+        attempts.get(1).run();
+        assertEquals(BARCODE, decode.get(10, TimeUnit.SECONDS).getText());
+        assertEquals("hybrid_inverted", trace.getStrategy());
+
+        int readsOfWinner = reads.get();
+        assertTrue(readsOfWinner > 0);
+        attempts.get(0).run();
+        attempts.get(2).run();
+        assertEquals(readsOfWinner, reads.get());
+
+        // The executor was given to the race, it stays up
+        race.shutdown();
+        assertFalse(executor.isShutdown());
+    }
+
+    @Test
+    public void shutsDownOnlyItsOwnPool() {
+        ExecutorService shared = Executors.newSingleThreadExecutor();
+        new DecodeStrategyRace(shared, 2).shutdown();
+        assertFalse(shared.isShutdown());
+        shared.shutdown();
+    }
+
+    private static BufferedImage inverted() throws Exception {
+        BufferedImage image = BarcodeImages.pure(BARCODE, 3);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, ~image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Counts the reads of its pixels and does not rotate, so the race leaves the rotated strategies out.
+     */
+    private static final class CountingSource extends LuminanceSource {
+        private final LuminanceSource source;
+        private final AtomicInteger reads;
+
+        CountingSource(LuminanceSource source, AtomicInteger reads) {
+            super(source.getWidth(), source.getHeight());
+            this.source = source;
+            this.reads = reads;
+        }
+
+        @Override
+        public byte[] getRow(int y, byte[] row) {
+            reads.incrementAndGet();
+            return source.getRow(y, row);
+        }
+
+        @Override
+        public byte[] getMatrix() {
+            reads.incrementAndGet();
+            return source.getMatrix();
+        }
+    }
+
+    /**
+     * Queues tasks until the test runs them, in the order it chooses.
+     */
+    private static final class ManualExecutor extends AbstractExecutorService {
+        private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        private volatile boolean shutdown;
+
+        List<Runnable> await(int count) throws InterruptedException {
+            List<Runnable> taken = new ArrayList<>();
+            while (taken.size() < count) {
+                Runnable task = tasks.poll(10, TimeUnit.SECONDS);
+                assertNotNull("Attempt " + taken.size() + " was never submitted", task);
+                taken.add(task);
+            }
+            return taken;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+}
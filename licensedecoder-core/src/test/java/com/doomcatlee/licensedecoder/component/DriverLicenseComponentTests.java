@@ -0,0 +1,60 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.BarcodeImages;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParserTests;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DriverLicenseComponentTests {
+
+    @Test
+    public void streamsCacheMissesAndStoresTheSameResult() throws Exception {
+        byte[] upload = png(BarcodeParserTests.barcode(8, "DAQ123", "DCSLEE", "DACDONG", "DAU070 IN", "DBB08211993"));
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setRaceParallelism(0);
+        DriverLicenseComponent driverLicenseComponent = new DriverLicenseComponent(decodeProperties);
+        try {
+            DecodeResultCache cache = driverLicenseComponent.getResultCache();
+
+            StringWriter miss = new StringWriter();
+            driverLicenseComponent.decodeDriverLicense(upload, DecodeProfile.BALANCED, null, miss);
+            assertTrue(miss.toString(), miss.toString().startsWith("{\"firstName\":\"DONG\""));
+            assertEquals(1, cache.size());
+            assertEquals(0, cache.getHits());
+
+            StringWriter hit = new StringWriter();
+            driverLicenseComponent.decodeDriverLicense(upload, DecodeProfile.BALANCED, null, hit);
+            assertEquals(miss.toString(), hit.toString());
+            assertEquals(miss.toString(), driverLicenseComponent.decodeDriverLicense(upload, DecodeProfile.BALANCED, null));
+            assertEquals(2, cache.getHits());
+            assertEquals(1, driverLicenseComponent.getMetrics().getCount(DecodeMetrics.Outcome.SUCCESS));
+        } finally {
+            driverLicenseComponent.shutdown();
+        }
+    }
+
+    @Test
+    public void leavesFailuresOutOfTheCache() throws Exception {
+        DriverLicenseComponent driverLicenseComponent = new DriverLicenseComponent();
+        try {
+            StringWriter out = new StringWriter();
+            driverLicenseComponent.decodeDriverLicense(new byte[]{1, 2, 3}, DecodeProfile.FAST, null, out);
+            assertEquals("{\"result\":\"Failed\"}", out.toString());
+            assertEquals(0, driverLicenseComponent.getResultCache().size());
+        } finally {
+            driverLicenseComponent.shutdown();
+        }
+    }
+
+    private static byte[] png(String barcode) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(BarcodeImages.pure(barcode, 3), "png", out);
+        return out.toByteArray();
+    }
+}
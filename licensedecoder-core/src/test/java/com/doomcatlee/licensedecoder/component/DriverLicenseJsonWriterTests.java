@@ -0,0 +1,68 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.google.gson.Gson;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static com.doomcatlee.licensedecoder.handlers.BarcodeParserTests.barcode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DriverLicenseJsonWriterTests {
+
+    @Test
+    public void matchesDataMap() throws Exception {
+        DriverLicense license = new DriverLicense(barcode(8,
+                "DAQD123.456.789", "DCSLEE", "DACDONG", "DADKUN", "DBD20150821", "DBB19930821", "DBA20230821",
+                "DBC1", "DAU070 IN", "DAYBRO", "DAG123 \"MAIN\" ST\\2", "DAIPORTLAND", "DAJOR", "DAK972010000"));
+
+        StringWriter out = new StringWriter();
+        DriverLicenseJsonWriter.write(license, out);
+
+        JSONObject expected = new JSONObject(new Gson().toJson(license.getData()));
+        JSONObject actual = new JSONObject(out.toString());
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String key : expected.keySet()) {
+            if (key.equals("height")) {
+                // Gson writes 70.0, the writer 70
+                assertEquals(expected.getDouble(key), actual.getDouble(key), 0.0);
+            } else {
+                assertEquals(key, expected.getString(key), actual.getString(key));
+            }
+        }
+        assertEquals(out.toString(), DriverLicenseJsonWriter.toJson(license));
+        assertTrue(out.toString().contains("\"height\":70,"));
+        assertTrue(out.toString().contains("\"dob\":\"1993-08-21\""));
+    }
+
+    @Test
+    public void leavesOutMissingDates() {
+        String json = DriverLicenseJsonWriter.toJson(new DriverLicense(barcode(8, "DAQD123", "DCSLEE", "DAU070")));
+
+        JSONObject parsed = new JSONObject(json);
+        assertEquals("D123", parsed.getString("driverLicenseNumber"));
+        assertTrue(!parsed.has("dob") && !parsed.has("licenseIssuedDate"));
+    }
+
+    @Test
+    public void leavesOutAMissingHeight() {
+        DriverLicense license = new DriverLicense(barcode(8, "DAQD123", "DCSLEE", "DBB08211993"));
+        String json = DriverLicenseJsonWriter.toJson(license);
+
+        JSONObject parsed = new JSONObject(json);
+        assertEquals("LEE", parsed.getString("lastName"));
+        assertEquals("1993-08-21", parsed.getString("dob"));
+        assertTrue(!parsed.has("height"));
+        assertTrue(!license.getData().containsKey("height"));
+        assertTrue(Double.isNaN(license.getHeight()));
+    }
+
+    @Test
+    public void escapesResult() {
+        assertEquals("{\"result\":\"Failed\"}", DriverLicenseJsonWriter.result("Failed"));
+        assertEquals("{\"result\":\"a\\\"b\\n\\u0001\"}", DriverLicenseJsonWriter.result("a\"b\n\u0001"));
+        assertEquals("{}", DriverLicenseJsonWriter.result(null));
+    }
+}
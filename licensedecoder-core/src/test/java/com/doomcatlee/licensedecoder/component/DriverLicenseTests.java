@@ -0,0 +1,60 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import com.doomcatlee.licensedecoder.handlers.BarcodeParser;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+
+import static com.doomcatlee.licensedecoder.handlers.BarcodeParserTests.barcode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class DriverLicenseTests {
+
+    private static final String BARCODE = barcode(8,
+            "DAQD123.456.789", "DCSLEE", "DACDONG", "DADKUN", "DBD20150821", "DBB19930821", "DBA20230821",
+            "DBC1", "DAU070 IN", "DAYBRO", "DAG123 MAIN ST", "DAIPORTLAND", "DAJOR", "DAK972010000", "DCGUSA");
+
+    @Test
+    public void dataMatchesParser() {
+        DriverLicense license = new DriverLicense(BARCODE);
+        BarcodeParser parser = new BarcodeParser(BARCODE);
+
+        assertEquals(parser.getData(), license.getData());
+        assertEquals(parser.getOriginalData(), license.getOriginalData());
+    }
+
+    @Test
+    public void exposesTypedValues() {
+        DriverLicense license = new DriverLicense(BARCODE);
+
+        assertEquals("DONG", license.getFirstName());
+        assertEquals("DONG", license.get(AamvaElement.FIRST_NAME));
+        assertEquals("USA", license.getCountry());
+        assertEquals(70.0, license.getHeight(), 0.0);
+        assertEquals(LocalDate.of(1993, 8, 21), license.getDOB());
+        assertEquals(LocalDate.of(2023, 8, 21), license.getLicenseExpirationDate());
+        assertNull(license.get(AamvaElement.NAME));
+    }
+
+    @Test
+    public void projectionOnlyReturnsRequestedFields() {
+        DriverLicense license = new DriverLicense(BARCODE, AamvaElement.parseFields("dob,DBA"));
+
+        HashMap<String, Object> data = license.getData();
+        assertEquals(2, data.size());
+        assertEquals("1993-08-21", data.get("dob"));
+        assertEquals("2023-08-21", data.get("licenseExpirationDate"));
+        assertEquals("{\"dob\":\"1993-08-21\",\"licenseExpirationDate\":\"2023-08-21\"}",
+                DriverLicenseJsonWriter.toJson(license));
+        assertFalse(license.includes(AamvaElement.FIRST_NAME));
+
+        // Anything else is still there, parsed on first access
+        assertEquals("DONG", license.getFirstName());
+        assertEquals(70.0, license.getHeight(), 0.0);
+        assertEquals(2, license.getData().size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaCodecs.DateLayout;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static com.doomcatlee.licensedecoder.handlers.BarcodeParserTests.barcode;
+import static org.junit.Assert.assertEquals;
+
+public class AamvaCodecsTests {
+
+    @Test
+    public void datesMatchPreviousParsing() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        for (String date : new String[] {"19930821", "20000229", "20231231", "19000101"}) {
+            assertEquals(date, LocalDate.parse(date, formatter),
+                    AamvaCodecs.parseDate(date, 0, date.length(), DateLayout.CCYYMMDD));
+        }
+    }
+
+    @Test
+    public void datesFollowLayoutAndFallBackToTheOther() {
+        assertEquals(LocalDate.of(1993, 8, 21), AamvaCodecs.parseDate("xx08211993 ", 2, 11, DateLayout.MMDDCCYY));
+        assertEquals(LocalDate.of(1993, 8, 21), AamvaCodecs.parseDate("19930821", 0, 8, DateLayout.MMDDCCYY));
+        assertEquals(LocalDate.of(1993, 8, 21), AamvaCodecs.parseDate("08211993", 0, 8, DateLayout.CCYYMMDD));
+
+        assertEquals(DateLayout.CCYYMMDD, DateLayout.of(1, "USA"));
+        assertEquals(DateLayout.MMDDCCYY, DateLayout.of(8, "USA"));
+        assertEquals(DateLayout.MMDDCCYY, DateLayout.of(8, null));
+        assertEquals(DateLayout.CCYYMMDD, DateLayout.of(8, "can "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidDates() {
+        AamvaCodecs.parseDate("19930231", 0, 8, DateLayout.CCYYMMDD);
+    }
+
+    @Test
+    public void parserReadsUsDatesAsMonthFirst() {
+        BarcodeParser parser = new BarcodeParser(barcode(8, "DAQD123", "DBB08211993", "DBA08212023", "DCGUSA"));
+
+        assertEquals(LocalDate.of(1993, 8, 21), parser.getDOB());
+        assertEquals(LocalDate.of(2023, 8, 21), parser.getLicenseExpirationDate());
+    }
+
+    @Test
+    public void heightMatchesPreviousParsing() {
+        for (String height : new String[] {"070 IN", " 5-09", "175 cm", "6'01\""}) {
+            assertEquals(height, Double.parseDouble(height.trim().replaceAll("[\\D]", "")),
+                    AamvaCodecs.parseHeight(height, 0, height.length()), 0.0);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsHeightWithoutDigits() {
+        AamvaCodecs.parseHeight("IN", 0, 2);
+    }
+
+    @Test
+    public void sexMatchesPreviousParsing() {
+        assertEquals("M", AamvaCodecs.parseSex("1", 0, 1));
+        assertEquals("F", AamvaCodecs.parseSex(" 2 ", 0, 3));
+        assertEquals("F", AamvaCodecs.parseSex("f", 0, 1));
+        assertEquals("9", AamvaCodecs.parseSex("9", 0, 1));
+        assertEquals("X", AamvaCodecs.parseSex("DBCx", 3, 4));
+    }
+
+    @Test
+    public void licenseNumberMatchesPreviousParsing() {
+        for (String number : new String[] {"D123.456.789", " 1234567 ", "A.B", "..."}) {
+            assertEquals(number.trim().replaceAll("[.]", ""),
+                    AamvaCodecs.parseLicenseNumber(number, 0, number.length()));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import org.junit.Test;
+
+import static com.doomcatlee.licensedecoder.handlers.BarcodeParserTests.barcode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AamvaSchemaRegistryTests {
+
+    @Test
+    public void picksSchemaByVersion() {
+        AamvaSchemaRegistry registry = AamvaSchemaRegistry.DEFAULT;
+
+        assertEquals(AamvaElement.FIRST_NAME, registry.schema(3, 636029).element("DCT"));
+        assertEquals(AamvaElement.FIRST_NAME, registry.schema(8, 636029).element("DAC"));
+        assertEquals(AamvaElement.ZIP_CODE, registry.schema(1, 636029).element("DAP"));
+        assertNull(registry.schema(8, 636029).element("DZZ"));
+        assertSame(registry.latest(), registry.schema(42, 636029));
+        // No issuer overrides ship, every issuer gets the version schema
+        assertSame(registry.schema(8, 636014), registry.schema(8, 636029));
+    }
+
+    @Test
+    public void primaryCodesWinOverFallbacks() {
+        // Version 1 names come from DAB/DAC, the DCS/DCT of later versions only fill in
+        BarcodeParser parser = new BarcodeParser(barcode(1,
+                "DAQ1234567", "DCSWRONG", "DABLEE", "DACDONG", "DCTWRONG", "DAKMAILING", "DAPRESIDENCE"));
+
+        assertEquals("LEE", parser.getLastName());
+        assertEquals("DONG", parser.getFirstName());
+        assertEquals("MAILING", parser.getZipCode());
+    }
+
+    @Test
+    public void issuerOverridesAndJurisdictionElements() {
+        AamvaSchemaRegistry registry = AamvaSchemaRegistry.builder()
+                .issuer(636029, schema -> schema.element("DAH", AamvaElement.ADDRESS).jurisdiction("ZOA", "Example"))
+                .build();
+        String barcode = barcode(8, "DAQD123", "DAH42 SIDE ST");
+
+        BarcodeParser parser = new BarcodeParser(barcode, null, registry);
+        assertEquals("42 SIDE ST", parser.getAddress());
+        assertEquals("EXAMPLE", parser.getJurisdictionData().get("Example"));
+
+        // Other issuers, and the default registry, keep the standard schema
+        assertNull(registry.schema(8, 636014).element("DAH"));
+        BarcodeParser standard = new BarcodeParser(barcode);
+        assertEquals("", standard.getAddress());
+        assertEquals("EXAMPLE", standard.getJurisdictionData().get("ZOA"));
+        assertEquals("EXAMPLE", standard.getOriginalData().get("ZOA"));
+    }
+}
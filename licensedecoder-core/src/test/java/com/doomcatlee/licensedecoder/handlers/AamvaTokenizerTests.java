@@ -0,0 +1,63 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AamvaTokenizerTests {
+
+    @Test
+    public void splitsOnDeclaredSeparatorsAndStopsAtTerminator() {
+        String subfile = "DAQD123|DCSLEE||DA|DACDONG$ZOZOAIGNORED";
+        AamvaTokenizer tokenizer = new AamvaTokenizer(subfile, 0, subfile.length(), '|', '$');
+
+        assertTrue(tokenizer.next());
+        assertEquals(AamvaTokenizer.code("DAQ"), tokenizer.code());
+        assertEquals("D123", tokenizer.value());
+        assertEquals(3, tokenizer.valueStart());
+        assertEquals(7, tokenizer.valueEnd());
+
+        assertTrue(tokenizer.next());
+        assertEquals("LEE", tokenizer.value());
+
+        // Empty and code-only elements are skipped
+        assertTrue(tokenizer.next());
+        assertEquals(AamvaTokenizer.code("DAC"), tokenizer.code());
+        assertEquals("DONG", tokenizer.value());
+
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void stopsAtEndOfSubfile() {
+        String barcode = "xxDAQD123\nDCSLEE\nDACDONG";
+        AamvaTokenizer tokenizer = new AamvaTokenizer(barcode, 2, 18, '\n', '\r');
+
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.next());
+        assertEquals("LEE", tokenizer.value());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void terminatorEqualToSeparatorOnlySeparates() {
+        String subfile = "DAQD123\nDCSLEE\nDACDONG\n";
+        AamvaTokenizer tokenizer = new AamvaTokenizer(subfile, 0, subfile.length(), '\n', '\n');
+
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.next());
+        assertEquals("DONG", tokenizer.value());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void codesAreThreeLetters() {
+        assertEquals(0, AamvaTokenizer.code("AAA"));
+        assertEquals(AamvaTokenizer.CODE_COUNT - 1, AamvaTokenizer.code("ZZZ"));
+        assertEquals(-1, AamvaTokenizer.code("DA1"));
+        assertEquals(-1, AamvaTokenizer.code("DAQX"));
+    }
+}
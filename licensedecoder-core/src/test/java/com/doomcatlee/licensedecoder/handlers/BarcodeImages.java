@@ -0,0 +1,41 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.pdf417.PDF417Writer;
+
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * PDF417 images rendered from AAMVA text, for tests and the benchmarks in src/jmh.
+ *
+ *          (ex)
+ *              BarcodeImages.pure(BarcodeParserTests.barcode(8, "DCSLEE", "DACDONG"), 3)
+ */
+public final class BarcodeImages {
+
+    private BarcodeImages() {
+    }
+
+    /**
+     * Black on white, moduleSize pixels per module, with a quiet zone around the barcode.
+     */
+    public static BufferedImage pure(String text, int moduleSize) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 10);
+        BitMatrix matrix = new PDF417Writer().encode(text, BarcodeFormat.PDF_417, 0, 0, hints);
+
+        BufferedImage image = new BufferedImage(matrix.getWidth() * moduleSize, matrix.getHeight() * moduleSize,
+                BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, matrix.get(x / moduleSize, y / moduleSize) ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        return image;
+    }
+}
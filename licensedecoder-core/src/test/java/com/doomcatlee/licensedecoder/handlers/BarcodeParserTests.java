@@ -0,0 +1,135 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BarcodeParserTests {
+
+    @Test
+    public void parsesSeparateNameElements() {
+        BarcodeParser parser = new BarcodeParser(barcode(8,
+                "DAQD123.456.789", "DCSLEE", "DACDONG", "DADKUN", "DBD20150821", "DBB19930821", "DBA20230821",
+                "DBC1", "DAU070 IN", "DAYBRO", "DAG123 MAIN ST", "DAIPORTLAND", "DAJOR", "DAK972010000", "DCGUSA"));
+
+        HashMap<String, String> data = parser.getData();
+        assertEquals("DONG", data.get("firstName"));
+        assertEquals("KUN", data.get("middleName"));
+        assertEquals("LEE", data.get("lastName"));
+        assertEquals("123 MAIN ST", data.get("address"));
+        assertEquals("PORTLAND", data.get("city"));
+        assertEquals("OR", data.get("state"));
+        assertEquals("972010000", data.get("zipcode"));
+        assertEquals("D123456789", data.get("driverLicenseNumber"));
+        assertEquals("BRO", data.get("eyeColor"));
+        assertEquals(70.0, data.get("height"));
+        assertEquals("M", data.get("sex"));
+        assertEquals("1993-08-21", data.get("dob"));
+        assertEquals("2015-08-21", data.get("licenseIssuedDate"));
+        assertEquals("2023-08-21", data.get("licenseExpirationDate"));
+        assertEquals(14, data.size());
+
+        assertEquals("ANSI", parser.getFileType());
+        assertEquals(636029, parser.getIdentificationNumber());
+        assertEquals(8, parser.getVersionNumber());
+        assertEquals("DL", parser.getSubfileType());
+        assertEquals("USA", parser.getCountry());
+    }
+
+    @Test
+    public void parsesFullNameWithSpaces() {
+        BarcodeParser parser = new BarcodeParser(barcode(1,
+                "DAQ1234567", "DAADONG KUN LEE", "DBD20150821", "DBB19930821", "DBA20230821",
+                "DBC2", "DAU509", "DAGPO BOX 1", "DAISALEM", "DAJor", "DAK97301", "DCGUSA"));
+
+        assertEquals("DONG", parser.getFirstName());
+        assertEquals("KUN", parser.getMiddleName());
+        assertEquals("LEE", parser.getLastName());
+        assertEquals("F", parser.getSex());
+        assertEquals("OR", parser.getState());
+        assertEquals(509.0, parser.getHeight(), 0.0);
+        assertEquals(1, parser.getVersionNumber());
+        assertEquals(LocalDate.of(1993, 8, 21), parser.getDOB());
+    }
+
+    @Test
+    public void parsesOregonCommaNames() {
+        BarcodeParser parser = new BarcodeParser(barcode(1,
+                "DAQ1234567", "DAALEE, DONG KUN, BABAK, JR", "DBD20150821", "DBB19930821", "DBA20230821",
+                "DBC1", "DAU070", "DAG1 MAIN ST", "DAISALEM", "DAJOR", "DAK97301", "DCGUSA"));
+
+        assertEquals("DONG KUN", parser.getFirstName());
+        assertEquals("BABAK", parser.getMiddleName());
+        assertEquals("LEE", parser.getLastName());
+    }
+
+    @Test
+    public void parsesTwoTokenName() {
+        BarcodeParser parser = new BarcodeParser(barcode(1,
+                "DAQ1234567", "DAADONG LEE", "DBD20150821", "DBB19930821", "DBA20230821",
+                "DBCM", "DAU070", "DAG1 MAIN ST", "DAISALEM", "DAJOR", "DAK97301", "DCGUSA"));
+
+        assertEquals("DONG", parser.getFirstName());
+        assertEquals("", parser.getMiddleName());
+        assertEquals("LEE", parser.getLastName());
+    }
+
+    @Test
+    public void extractsOnlyProjectedElements() {
+        BarcodeParser parser = new BarcodeParser(barcode(1,
+                "DAQ1234567", "DAADONG KUN LEE", "DBB19930821", "DBA20230821", "DAU509"),
+                EnumSet.of(AamvaElement.DOB, AamvaElement.FIRST_NAME));
+
+        assertEquals(EnumSet.of(AamvaElement.DOB, AamvaElement.NAME), parser.getElements().keySet());
+        assertEquals("DONG", parser.getFirstName());
+        assertNull(parser.getLicenseExpirationDate());
+    }
+
+    @Test
+    public void parsesFieldProjections() {
+        assertNull(AamvaElement.parseFields(" "));
+        assertEquals(EnumSet.of(AamvaElement.DOB, AamvaElement.LICENSE_EXPIRATION_DATE),
+                AamvaElement.parseFields("DBB, licenseexpirationdate"));
+        assertEquals(EnumSet.of(AamvaElement.FIRST_NAME, AamvaElement.MIDDLE_NAME, AamvaElement.LAST_NAME,
+                AamvaElement.ZIP_CODE), AamvaElement.parseFields("name,zipcode"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFields() {
+        AamvaElement.parseFields("dob,shoeSize");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFieldsThatAreNeverReturned() {
+        AamvaElement.parseFields("dob,DCG");
+    }
+
+
+    /**
+     * Build an AAMVA barcode string with a DL subfile holding the elements, followed by a small ZO subfile
+     * the way real cards carry jurisdiction data after the DL subfile.
+     */
+    public static String barcode(int version, String... elements) {
+        StringBuilder dl = new StringBuilder("DL");
+        for (int i = 0; i < elements.length; i++) {
+            dl.append(elements[i]).append(i < elements.length - 1 ? "\n" : "\r");
+        }
+        String zo = "ZOZOAEXAMPLE\r";
+
+        int headerLength = version > 1 ? 41 : 39;
+        StringBuilder header = new StringBuilder("@\n\u001e\rANSI 636029")
+                .append(String.format("%02d", version));
+        if (version > 1) {
+            header.append("00");
+        }
+        header.append("02")
+                .append("DL").append(String.format("%04d%04d", headerLength, dl.length()))
+                .append("ZO").append(String.format("%04d%04d", headerLength + dl.length(), zo.length()));
+        return header.toString() + dl + zo;
+    }
+}
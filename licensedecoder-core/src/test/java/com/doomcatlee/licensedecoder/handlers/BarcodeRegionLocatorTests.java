@@ -0,0 +1,120 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.pdf417.PDF417Reader;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BarcodeRegionLocatorTests {
+
+    private static final String BARCODE = BarcodeParserTests.barcode(8, "DAQ123", "DCSLEE", "DACDONG", "DAU070 IN",
+            "DBB08211993");
+
+    @Test
+    public void cropsToTheBarcodeOfALargePhoto() throws Exception {
+        BufferedImage barcode = BarcodeImages.pure(BARCODE, 3);
+        BufferedImage photo = photo(2400, 1600);
+        Rectangle placed = place(photo, barcode, 1500, 1100, 0);
+
+        LuminanceSource region = BarcodeRegionLocator.locate(new BufferedImageLuminanceSource(photo));
+
+        assertContains(region, placed);
+        assertTrue(region.getWidth() * region.getHeight() < photo.getWidth() * photo.getHeight() / 4);
+        assertEquals(BARCODE, decode(region));
+    }
+
+    @Test
+    public void findsABarcodeTurnedOnItsSide() throws Exception {
+        BufferedImage barcode = BarcodeImages.pure(BARCODE, 3);
+        // Portrait shot, the bars run across the image
+        BufferedImage photo = photo(1600, 2400);
+        Rectangle placed = place(photo, barcode, 200, 300, 90);
+
+        LuminanceSource region = BarcodeRegionLocator.locate(new BufferedImageLuminanceSource(photo));
+
+        assertContains(region, placed);
+        assertTrue(region.getWidth() * region.getHeight() < photo.getWidth() * photo.getHeight() / 4);
+        assertEquals(BARCODE, decode(region.rotateCounterClockwise()));
+    }
+
+    @Test
+    public void findsNothingWithoutABarcode() {
+        BufferedImage photo = photo(2400, 1600);
+        Graphics2D graphics = photo.createGraphics();
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.fillRect(300, 300, 900, 500);
+        graphics.drawString("DRIVER LICENSE", 1500, 400);
+        graphics.dispose();
+
+        assertNull(BarcodeRegionLocator.locate(new BufferedImageLuminanceSource(photo)));
+    }
+
+    @Test
+    public void leavesSmallImagesAlone() throws Exception {
+        BufferedImage barcode = BarcodeImages.pure(BARCODE, 3);
+        assertNull(BarcodeRegionLocator.locate(new BufferedImageLuminanceSource(barcode)));
+    }
+
+    // Light gray card, like the plastic around a barcode
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage photo = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = photo.createGraphics();
+        graphics.setColor(new Color(0xE0E0E0));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return photo;
+    }
+
+    // Draw the barcode with its top left corner at (x, y), turned clockwise by a multiple of 90 degrees.
+    // Returns where its bars ended up, the quiet zone around them may be cropped
+    private static Rectangle place(BufferedImage photo, BufferedImage barcode, int x, int y, int degrees) {
+        AffineTransform transform = AffineTransform.getTranslateInstance(x, y);
+        if (degrees == 90) {
+            transform.translate(barcode.getHeight(), 0);
+        }
+        transform.rotate(Math.toRadians(degrees));
+        Graphics2D graphics = photo.createGraphics();
+        graphics.drawImage(barcode, transform, null);
+        graphics.dispose();
+        return transform.createTransformedShape(bars(barcode)).getBounds();
+    }
+
+    private static Rectangle bars(BufferedImage barcode) {
+        Rectangle bars = null;
+        for (int y = 0; y < barcode.getHeight(); y++) {
+            for (int x = 0; x < barcode.getWidth(); x++) {
+                if ((barcode.getRGB(x, y) & 0xFFFFFF) == 0) {
+                    if (bars == null) {
+                        bars = new Rectangle(x, y, 1, 1);
+                    } else {
+                        bars.add(new Rectangle(x, y, 1, 1));
+                    }
+                }
+            }
+        }
+        return bars;
+    }
+
+    // The crop does not tell where it starts, the decodes check it is over the barcode
+    private static void assertContains(LuminanceSource region, Rectangle placed) {
+        assertNotNull(region);
+        assertTrue(region.getWidth() + "x" + region.getHeight() + " around " + placed,
+                region.getWidth() >= placed.width && region.getHeight() >= placed.height);
+    }
+
+    private static String decode(LuminanceSource source) throws Exception {
+        return new PDF417Reader().decode(new BinaryBitmap(new HybridBinarizer(source))).getText();
+    }
+}
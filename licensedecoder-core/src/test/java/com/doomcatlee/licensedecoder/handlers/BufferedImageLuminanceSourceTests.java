@@ -0,0 +1,99 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.LuminanceSource;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class BufferedImageLuminanceSourceTests {
+
+    private static final int[] IMAGE_TYPES = {
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_INT_BGR,
+            BufferedImage.TYPE_USHORT_565_RGB
+    };
+
+    @Test
+    public void convertsEveryImageTypeLikeGetRGB() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage image = randomImage(type, 37, 23);
+            LuminanceSource source = new BufferedImageLuminanceSource(image);
+            assertArrayEquals("type " + type, expectedMatrix(image, 0, 0, 37, 23), source.getMatrix());
+        }
+    }
+
+    @Test
+    public void convertsOnlyTheCrop() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage image = randomImage(type, 40, 30);
+            LuminanceSource source = new BufferedImageLuminanceSource(image, 5, 7, 20, 11);
+            assertArrayEquals("type " + type, expectedMatrix(image, 5, 7, 20, 11), source.getMatrix());
+
+            LuminanceSource cropped = source.crop(3, 2, 10, 6);
+            assertArrayEquals("type " + type, expectedMatrix(image, 8, 9, 10, 6), cropped.getMatrix());
+        }
+    }
+
+    @Test
+    public void convertsSubimages() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage image = randomImage(type, 50, 40).getSubimage(9, 4, 30, 25);
+            LuminanceSource source = new BufferedImageLuminanceSource(image, 2, 3, 21, 17);
+            assertArrayEquals("type " + type, expectedMatrix(image, 2, 3, 21, 17), source.getMatrix());
+        }
+    }
+
+    @Test
+    public void rowsMatchMatrix() {
+        BufferedImage image = randomImage(BufferedImage.TYPE_3BYTE_BGR, 31, 19);
+        LuminanceSource source = new BufferedImageLuminanceSource(image, 4, 2, 20, 15);
+        byte[] expected = expectedMatrix(image, 4, 2, 20, 15);
+        for (int y = 0; y < 15; y++) {
+            byte[] row = new byte[20];
+            System.arraycopy(expected, y * 20, row, 0, 20);
+            assertArrayEquals(row, source.getRow(y, null));
+        }
+    }
+
+    // Fills the image with random colors, a quarter of them fully transparent where the type has alpha
+    static BufferedImage randomImage(int type, int width, int height) {
+        Random random = new Random(type * 31L + width);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = random.nextInt();
+                if (random.nextInt(4) == 0) {
+                    argb &= 0x00FFFFFF;
+                } else {
+                    argb |= 0xFF000000;
+                }
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    // Reference conversion: getRGB, transparent pixels forced to white, weighted sum with rounding
+    static byte[] expectedMatrix(BufferedImage image, int left, int top, int width, int height) {
+        byte[] matrix = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = image.getRGB(left + x, top + y);
+                if ((pixel & 0xFF000000) == 0) {
+                    pixel = 0xFFFFFFFF;
+                }
+                matrix[y * width + x] = (byte) ((306 * ((pixel >> 16) & 0xFF)
+                        + 601 * ((pixel >> 8) & 0xFF)
+                        + 117 * (pixel & 0xFF)
+                        + 0x200) >> 10);
+            }
+        }
+        return matrix;
+    }
+}
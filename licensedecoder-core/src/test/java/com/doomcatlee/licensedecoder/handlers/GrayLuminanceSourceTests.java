@@ -0,0 +1,114 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.google.zxing.LuminanceSource;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GrayLuminanceSourceTests {
+
+    private static final int[][] CROPS = {
+            {0, 0, 41, 27},
+            {3, 5, 20, 11},
+            {0, 9, 41, 18},
+            {17, 0, 24, 27},
+            {40, 26, 1, 1}
+    };
+
+    @Test
+    public void cropAndRowsMatchTheSourceImage() {
+        BufferedImage image = randomGrayImage(41, 27);
+        GrayLuminanceSource source = new GrayLuminanceSource(data(image), 41, 27);
+        for (int[] crop : CROPS) {
+            LuminanceSource cropped = source.crop(crop[0], crop[1], crop[2], crop[3]);
+            LuminanceSource expected = new BufferedImageLuminanceSource(image, crop[0], crop[1], crop[2], crop[3]);
+            assertArrayEquals(expected.getMatrix(), cropped.getMatrix());
+            for (int y = 0; y < crop[3]; y++) {
+                assertArrayEquals(expected.getRow(y, null), cropped.getRow(y, null));
+            }
+        }
+    }
+
+    @Test
+    public void rotateCounterClockwiseMatchesGraphics2D() {
+        BufferedImage image = randomGrayImage(41, 27);
+        for (int[] crop : CROPS) {
+            byte[] expected = referenceRotateCounterClockwise(image, crop[0], crop[1], crop[2], crop[3]);
+
+            LuminanceSource gray = new GrayLuminanceSource(data(image), 41, 27).crop(crop[0], crop[1], crop[2], crop[3]);
+            assertRotated(expected, crop, gray.rotateCounterClockwise());
+
+            LuminanceSource buffered = new BufferedImageLuminanceSource(image, crop[0], crop[1], crop[2], crop[3]);
+            assertRotated(expected, crop, buffered.rotateCounterClockwise());
+        }
+    }
+
+    @Test
+    public void rotate180AndClockwiseMatchRepeatedCounterClockwise() {
+        BufferedImage image = randomGrayImage(41, 27);
+        for (int[] crop : CROPS) {
+            GrayLuminanceSource source = (GrayLuminanceSource)
+                    new GrayLuminanceSource(data(image), 41, 27).crop(crop[0], crop[1], crop[2], crop[3]);
+            LuminanceSource once = source.rotateCounterClockwise();
+            LuminanceSource twice = once.rotateCounterClockwise();
+            LuminanceSource thrice = twice.rotateCounterClockwise();
+
+            assertArrayEquals(twice.getMatrix(), source.rotate180().getMatrix());
+            assertArrayEquals(thrice.getMatrix(), source.rotateClockwise().getMatrix());
+            assertArrayEquals(source.getMatrix(), thrice.rotateCounterClockwise().getMatrix());
+        }
+    }
+
+    @Test
+    public void rotateCounterClockwise45MatchesBufferedImageSource() {
+        BufferedImage image = randomGrayImage(41, 27);
+        for (int[] crop : CROPS) {
+            LuminanceSource expected = new BufferedImageLuminanceSource(image, crop[0], crop[1], crop[2], crop[3])
+                    .rotateCounterClockwise45();
+            LuminanceSource actual = new GrayLuminanceSource(data(image), 41, 27)
+                    .crop(crop[0], crop[1], crop[2], crop[3])
+                    .rotateCounterClockwise45();
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            assertArrayEquals(expected.getMatrix(), actual.getMatrix());
+        }
+    }
+
+    private static void assertRotated(byte[] expected, int[] crop, LuminanceSource rotated) {
+        assertEquals(crop[3], rotated.getWidth());
+        assertEquals(crop[2], rotated.getHeight());
+        assertArrayEquals(expected, rotated.getMatrix());
+    }
+
+    // The Graphics2D rotation BufferedImageLuminanceSource used before, kept here as the reference
+    private static byte[] referenceRotateCounterClockwise(BufferedImage image, int left, int top, int width, int height) {
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+        AffineTransform transform = new AffineTransform(0.0, -1.0, 1.0, 0.0, 0.0, sourceWidth);
+        BufferedImage rotatedImage = new BufferedImage(sourceHeight, sourceWidth, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = rotatedImage.createGraphics();
+        g.drawImage(image, transform, null);
+        g.dispose();
+
+        byte[] matrix = new byte[width * height];
+        rotatedImage.getRaster().getDataElements(top, sourceWidth - (left + width), height, width, matrix);
+        return matrix;
+    }
+
+    private static BufferedImage randomGrayImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        new Random(width * 31L + height).nextBytes(data(image));
+        return image;
+    }
+
+    private static byte[] data(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
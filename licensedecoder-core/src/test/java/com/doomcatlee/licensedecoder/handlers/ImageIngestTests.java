@@ -0,0 +1,113 @@
+package com.doomcatlee.licensedecoder.handlers;
+
+import com.doomcatlee.licensedecoder.component.DecodeProfile;
+import com.doomcatlee.licensedecoder.component.DecodeProperties;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImageIngestTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsSmallFilesOnTheHeapAndMapsLargeOnes() throws Exception {
+        Path small = folder.newFile("small.png").toPath();
+        ImageIO.write(image(40, 30), "png", small.toFile());
+        // Uncompressed, 600 x 600 x 3 bytes is past the threshold
+        Path large = folder.newFile("large.bmp").toPath();
+        ImageIO.write(image(600, 600), "bmp", large.toFile());
+        assertTrue(Files.size(large) >= ImageIngest.MAP_THRESHOLD);
+
+        ByteBuffer smallBuffer = ImageIngest.read(small);
+        assertFalse(smallBuffer instanceof MappedByteBuffer);
+        assertArrayEquals(Files.readAllBytes(small), ImageIngest.toBytes(smallBuffer));
+        assertEquals(40, ImageIngest.decode(smallBuffer).getWidth());
+        // Decoding leaves the buffer as it was, it can be decoded again
+        assertEquals(30, ImageIngest.decode(smallBuffer).getHeight());
+
+        ByteBuffer largeBuffer = ImageIngest.read(large);
+        assertTrue(largeBuffer instanceof MappedByteBuffer);
+        assertEquals(Files.size(large), largeBuffer.remaining());
+        assertEquals(600, ImageIngest.decode(largeBuffer).getWidth());
+    }
+
+    @Test
+    public void decodesFromAnyPositionAndStream() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image(20, 10), "png", png);
+        byte[] bytes = png.toByteArray();
+
+        byte[] padded = new byte[bytes.length + 7];
+        System.arraycopy(bytes, 0, padded, 5, bytes.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 5, bytes.length);
+        assertEquals(20, ImageIngest.decode(slice).getWidth());
+        assertEquals(5, slice.position());
+        assertArrayEquals(bytes, ImageIngest.toBytes(slice));
+
+        ByteBuffer streamed = ImageIngest.read(new ByteArrayInputStream(bytes));
+        assertArrayEquals(bytes, ImageIngest.toBytes(streamed));
+
+        assertNull(ImageIngest.decode(ByteBuffer.wrap(new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    public void decodingStoredFilesKeepsFileDescriptorsFlat() throws Exception {
+        File fds = new File("/proc/self/fd");
+        Assume.assumeTrue(fds.isDirectory());
+
+        Path small = folder.newFile("small.png").toPath();
+        ImageIO.write(image(40, 30), "png", small.toFile());
+        Path large = folder.newFile("large.bmp").toPath();
+        ImageIO.write(image(600, 600), "bmp", large.toFile());
+        Path missing = Paths.get(folder.getRoot().getPath(), "missing.png");
+
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setCacheMaxEntries(0);
+        decodeProperties.setRaceParallelism(0);
+        DriverLicenseComponent driverLicenseComponent = new DriverLicenseComponent(decodeProperties);
+        try {
+            // Warm up, class loading opens jars
+            driverLicenseComponent.decodeDriverLicense(small, DecodeProfile.FAST, null);
+            int before = fds.list().length;
+            for (int i = 0; i < 100; i++) {
+                // No barcode in them, every decode fails after the file has been read
+                driverLicenseComponent.decodeDriverLicense(i % 2 == 0 ? small : large, DecodeProfile.FAST, null);
+                driverLicenseComponent.decodeDriverLicense(missing, DecodeProfile.FAST, null);
+            }
+            assertTrue(fds.list().length <= before + 2);
+        } finally {
+            driverLicenseComponent.shutdown();
+        }
+    }
+
+    private static BufferedImage image(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 31 + y * 17) % 2 == 0 ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        return image;
+    }
+}
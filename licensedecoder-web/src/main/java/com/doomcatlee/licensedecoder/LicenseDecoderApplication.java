@@ -1,5 +1,7 @@
 package com.doomcatlee.licensedecoder;
 
+import com.doomcatlee.licensedecoder.cli.BulkDecodeCommand;
+import com.doomcatlee.licensedecoder.config.CorsProperties;
 import com.doomcatlee.licensedecoder.config.FileStorageProperties;
 import com.google.common.base.Predicates;
 import org.springframework.boot.SpringApplication;
@@ -14,10 +16,12 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.Arrays;
+
 @Configuration
 @EnableSwagger2
 @SpringBootApplication(scanBasePackages={"com.doomcatlee"})
-@EnableConfigurationProperties({FileStorageProperties.class})
+@EnableConfigurationProperties({FileStorageProperties.class, CorsProperties.class})
 public class LicenseDecoderApplication {
 
     @Bean
@@ -44,7 +48,17 @@ public class LicenseDecoderApplication {
                 .build();
     }
 
-    public static void main(String[] args) {
+    /**
+     * Starts the web server, or with bulk-decode as the first argument decodes images from the disk
+     * without starting Spring at all (see BulkDecodeCommand).
+     *
+     *          (ex) java -jar license-decoder.jar bulk-decode --in=/archive/scans --out=results.ndjson
+     * **/
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("bulk-decode")) {
+            BulkDecodeCommand.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SpringApplication.run(LicenseDecoderApplication.class, args);
     }
 }
@@ -0,0 +1,257 @@
+package com.doomcatlee.licensedecoder.component;
+
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@Component
+public class BatchDecodeComponent {
+    private static final Logger log = LoggerFactory.getLogger(BatchDecodeComponent.class);
+
+    private final DriverLicenseComponent driverLicenseComponent;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int maxEntries;
+    private final long maxEntryBytes;
+    private final long maxTotalBytes;
+
+    @Autowired
+    public BatchDecodeComponent(DriverLicenseComponent driverLicenseComponent, DecodeProperties decodeProperties) {
+        this.driverLicenseComponent = driverLicenseComponent;
+
+        int threads = decodeProperties.getBatchThreads() > 0
+                ? decodeProperties.getBatchThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = decodeProperties.getBatchMaxInFlight() > 0
+                ? decodeProperties.getBatchMaxInFlight()
+                : threads * 2;
+        this.maxEntries = decodeProperties.getBatchMaxEntries();
+        this.maxEntryBytes = decodeProperties.getBatchMaxEntryMegabytes() * 1024 * 1024;
+        this.maxTotalBytes = decodeProperties.getBatchMaxTotalMegabytes() * 1024 * 1024;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-decode-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Decode every uploaded image in parallel. ZIP archives are expanded and each entry is decoded on its own.
+     *
+     * Returns one result per image, in upload order, with the original file name attached:
+     *
+     *          (ex)
+     *              [
+     *                  {"fileName": "front.png", "firstName": "Dong", ...},
+     *                  {"fileName": "scans.zip/back.jpg", "result": "Failed"}
+     *              ]
+     *
+     * **/
+    public String decodeFiles(MultipartFile[] files, DecodeProfile profile) {
+        return decodeFiles(files, profile, null);
+    }
+
+    /**
+     * @param fields elements to extract and return for every image, null for all of them
+     * @throws LimitExceededException when the ZIP archives expand past decode.batch-max-entries,
+     *         decode.batch-max-entry-megabytes or decode.batch-max-total-megabytes, nothing is returned then
+     * @throws IllegalStateException when the thread is interrupted while waiting to submit, it stays interrupted
+     * **/
+    public String decodeFiles(MultipartFile[] files, DecodeProfile profile, Set<AamvaElement> fields) {
+        Batch batch = new Batch(profile, fields);
+        for (MultipartFile file : files) {
+            String fileName = file.getOriginalFilename();
+            try {
+                if (isZip(file)) {
+                    try (InputStream inputStream = file.getInputStream()) {
+                        decodeZip(fileName, inputStream, batch);
+                    }
+                } else {
+                    batch.submit(fileName, file.getBytes());
+                }
+            } catch (LimitExceededException ex) {
+                batch.cancel();
+                throw ex;
+            } catch (InterruptedException ex) {
+                // Shutting down, the rest of the batch is not decoded
+                Thread.currentThread().interrupt();
+                batch.cancel();
+                throw new IllegalStateException("Batch decode was interrupted", ex);
+            } catch (Exception ex) {
+                batch.fail(fileName, ex);
+            }
+        }
+        return batch.collect();
+    }
+
+    /**
+     * Stream entries out of a ZIP archive and decode them as they are read. Only a bounded number of
+     * entries is held in memory at any time, nothing is unpacked to disk.
+     *
+     * Entries are read through a bounded copy: the sizes declared in the archive are not trusted, a small
+     * archive can expand to gigabytes.
+     * **/
+    private void decodeZip(String archiveName, InputStream inputStream, Batch batch) throws IOException, InterruptedException {
+        ZipInputStream zip = new ZipInputStream(inputStream);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                String entryName = archiveName + "/" + entry.getName();
+                batch.countEntry();
+                batch.submit(entryName, readEntry(entryName, zip, batch));
+            }
+            zip.closeEntry();
+        }
+    }
+
+    private byte[] readEntry(String entryName, InputStream zip, Batch batch) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = zip.read(buffer)) >= 0) {
+            if (out.size() + count > maxEntryBytes) {
+                throw new LimitExceededException(entryName + " expands to more than "
+                        + maxEntryBytes / (1024 * 1024) + " MB");
+            }
+            batch.countBytes(count);
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        String fileName = file.getOriginalFilename();
+        return (contentType != null && contentType.contains("zip"))
+                || (fileName != null && fileName.toLowerCase().endsWith(".zip"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Results of one batch request, kept in submission order.
+     * **/
+    private class Batch {
+        private final List<String> fileNames = new ArrayList<>();
+        private final List<Future<String>> results = new ArrayList<>();
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final DecodeProfile profile;
+        private final Set<AamvaElement> fields;
+        private int entries;
+        private long expandedBytes;
+
+        Batch(DecodeProfile profile, Set<AamvaElement> fields) {
+            this.profile = profile;
+            this.fields = fields;
+        }
+
+        // Blocks while too many entries are waiting for a decode thread
+        void submit(String fileName, byte[] barCodeBytes) throws InterruptedException {
+            inFlight.acquire();
+            fileNames.add(fileName);
+            results.add(executor.submit(() -> {
+                try {
+                    return driverLicenseComponent.decodeDriverLicense(barCodeBytes, profile, fields);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        }
+
+        void countEntry() {
+            if (++entries > maxEntries) {
+                throw new LimitExceededException("ZIP archives hold more than " + maxEntries + " entries");
+            }
+        }
+
+        void countBytes(int count) {
+            expandedBytes += count;
+            if (expandedBytes > maxTotalBytes) {
+                throw new LimitExceededException("ZIP archives expand to more than "
+                        + maxTotalBytes / (1024 * 1024) + " MB");
+            }
+        }
+
+        // The request is rejected, decodes that have not started yet are dropped
+        void cancel() {
+            for (Future<String> result : results) {
+                if (result != null) {
+                    result.cancel(true);
+                }
+            }
+        }
+
+        void fail(String fileName, Exception ex) {
+            fileNames.add(fileName);
+            results.add(null);
+            log.debug("Failed to read " + fileName, ex);
+            driverLicenseComponent.getMetrics().recordFailure(DecodeMetrics.Failure.UPLOAD);
+        }
+
+        // Each result is already a JSON object, fileName is spliced in front of its fields instead of re-parsing it
+        String collect() {
+            StringWriter out = new StringWriter();
+            out.write('[');
+            for (int i = 0; i < results.size(); i++) {
+                String entry;
+                try {
+                    Future<String> result = results.get(i);
+                    entry = result == null ? DriverLicenseJsonWriter.result("Failed") : result.get();
+                } catch (Exception ex) {
+                    log.debug("Failed to decode " + fileNames.get(i), ex);
+                    driverLicenseComponent.getMetrics().recordFailure(DecodeMetrics.Failure.BATCH);
+                    entry = DriverLicenseJsonWriter.result("Failed");
+                }
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write("{\"fileName\":");
+                try {
+                    DriverLicenseJsonWriter.writeString(fileNames.get(i), out);
+                } catch (IOException ex) {
+                    // StringWriter does not throw
+                    throw new IllegalStateException(ex);
+                }
+                if (entry.length() > 2) {
+                    out.write(',');
+                }
+                out.write(entry, 1, entry.length() - 1);
+            }
+            out.write(']');
+            return out.toString();
+        }
+    }
+
+    /**
+     * A batch request whose ZIP archives expand past the configured limits.
+     * **/
+    public static class LimitExceededException extends IllegalArgumentException {
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
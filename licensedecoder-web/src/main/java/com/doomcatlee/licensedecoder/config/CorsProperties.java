@@ -0,0 +1,57 @@
+package com.doomcatlee.licensedecoder.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "cors")
+public class CorsProperties {
+    private List<String> allowedOrigins = new ArrayList<>(); // none, * allows any origin when credentials are off
+    private List<String> allowedMethods = new ArrayList<>(Arrays.asList("GET", "POST", "OPTIONS", "DELETE"));
+    private List<String> allowedHeaders = new ArrayList<>(Arrays.asList(
+            "Authorization", "Content-Type", "Accept", "X-Requested-With", "remember-me")); // * allows any header
+    private long maxAgeSeconds = 7200; // Chromium caps cached preflights at 2 hours, Firefox at 24
+    private boolean allowCredentials = true;
+
+    public List<String> getAllowedOrigins() {
+        return allowedOrigins;
+    }
+
+    public void setAllowedOrigins(List<String> allowedOrigins) {
+        this.allowedOrigins = allowedOrigins;
+    }
+
+    public List<String> getAllowedMethods() {
+        return allowedMethods;
+    }
+
+    public void setAllowedMethods(List<String> allowedMethods) {
+        this.allowedMethods = allowedMethods;
+    }
+
+    public List<String> getAllowedHeaders() {
+        return allowedHeaders;
+    }
+
+    public void setAllowedHeaders(List<String> allowedHeaders) {
+        this.allowedHeaders = allowedHeaders;
+    }
+
+    public long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public void setMaxAgeSeconds(long maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    public boolean isAllowCredentials() {
+        return allowCredentials;
+    }
+
+    public void setAllowCredentials(boolean allowCredentials) {
+        this.allowCredentials = allowCredentials;
+    }
+}
@@ -0,0 +1,33 @@
+package com.doomcatlee.licensedecoder.config;
+
+import com.doomcatlee.licensedecoder.component.DecodeJobComponent;
+import com.doomcatlee.licensedecoder.component.DecodeProperties;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans of the decoding core, which has no Spring dependency of its own.
+ * Settings are bound from the decode.* properties (see application.properties).
+ * **/
+@Configuration
+public class DecodeConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "decode")
+    public DecodeProperties decodeProperties() {
+        return new DecodeProperties();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public DriverLicenseComponent driverLicenseComponent(DecodeProperties decodeProperties) {
+        return new DriverLicenseComponent(decodeProperties);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public DecodeJobComponent decodeJobComponent(DriverLicenseComponent driverLicenseComponent,
+                                                 DecodeProperties decodeProperties) {
+        return new DecodeJobComponent(driverLicenseComponent, decodeProperties);
+    }
+}
@@ -0,0 +1,61 @@
+package com.doomcatlee.licensedecoder.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "file")
+public class FileStorageProperties {
+    private String uploadDir;
+    private boolean storeUploads = false; // uploads are decoded in memory unless explicitly enabled
+    private long maxAgeHours = 168; // 0 keeps uploads whatever their age
+    private long maxMegabytes = 1024; // 0 lets the directory grow without bound
+    private long sweepIntervalMinutes = 10;
+    private int writeQueueCapacity = 64;
+
+    public String getUploadDir() {
+        return uploadDir;
+    }
+
+    public void setUploadDir(String uploadDir) {
+        this.uploadDir = uploadDir;
+    }
+
+    public boolean isStoreUploads() {
+        return storeUploads;
+    }
+
+    public void setStoreUploads(boolean storeUploads) {
+        this.storeUploads = storeUploads;
+    }
+
+    public long getMaxAgeHours() {
+        return maxAgeHours;
+    }
+
+    public void setMaxAgeHours(long maxAgeHours) {
+        this.maxAgeHours = maxAgeHours;
+    }
+
+    public long getMaxMegabytes() {
+        return maxMegabytes;
+    }
+
+    public void setMaxMegabytes(long maxMegabytes) {
+        this.maxMegabytes = maxMegabytes;
+    }
+
+    public long getSweepIntervalMinutes() {
+        return sweepIntervalMinutes;
+    }
+
+    public void setSweepIntervalMinutes(long sweepIntervalMinutes) {
+        this.sweepIntervalMinutes = sweepIntervalMinutes;
+    }
+
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    public void setWriteQueueCapacity(int writeQueueCapacity) {
+        this.writeQueueCapacity = writeQueueCapacity;
+    }
+}
@@ -0,0 +1,279 @@
+package com.doomcatlee.licensedecoder.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a copy of every upload when file.store-uploads is enabled.
+ *
+ * Files are named by the SHA-256 of their content and sharded two levels deep by its first hex digits, so
+ * identical uploads are stored once and no directory grows past a few thousand entries:
+ *
+ *          (ex) uploads/3f/a9/3fa9c1...e07d
+ *
+ * Uploads are written by a single background thread, a request never waits on the disk. When that thread
+ * falls behind, further copies are dropped. A sweeper deletes uploads older than file.max-age-hours and,
+ * once the directory holds more than file.max-megabytes, the least recently uploaded ones.
+ * **/
+@Service
+public class FileStorageService {
+    private static final String TEMP_SUFFIX = ".part";
+    private static final long TEMP_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path fileStorageLocation;
+    private final boolean enabled;
+    private final long maxAgeMillis;
+    private final long maxBytes;
+    private final ThreadPoolExecutor writer;
+    private final ScheduledExecutorService sweeper;
+    private final AtomicBoolean sweepRequested = new AtomicBoolean();
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    // Exact after each sweep, writes in between are added
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    @Autowired
+    public FileStorageService(FileStorageProperties fileStorageProperties) {
+        this.fileStorageLocation = Paths.get(fileStorageProperties.getUploadDir())
+                .toAbsolutePath().normalize();
+        this.enabled = fileStorageProperties.isStoreUploads();
+        this.maxAgeMillis = TimeUnit.HOURS.toMillis(fileStorageProperties.getMaxAgeHours());
+        this.maxBytes = fileStorageProperties.getMaxMegabytes() * 1024 * 1024;
+
+        // Nothing to prepare when uploads are only decoded in memory
+        if (!enabled) {
+            this.writer = null;
+            this.sweeper = null;
+            return;
+        }
+
+        System.err.println("Initializing file storage service");
+        System.err.println("file location: " + this.fileStorageLocation);
+
+        try {
+            Files.createDirectories(this.fileStorageLocation);
+        } catch (Exception ex) {
+            System.err.println("Failed: " + ex.getMessage());
+        }
+
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fileStorageProperties.getWriteQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "file-storage-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-storage-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The first sweep also measures what earlier runs left behind
+        long sweepMinutes = Math.max(1, fileStorageProperties.getSweepIntervalMinutes());
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, 0, sweepMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Whether uploads should be persisted to the upload directory (file.store-uploads).
+     * **/
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a copy of the upload for writing and return right away.
+     *
+     * @return whether the copy was queued, false when storage is disabled or the writer is behind
+     * **/
+    public boolean storeFile(byte[] barCodeBytes) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            writer.execute(() -> {
+                try {
+                    write(barCodeBytes);
+                } catch (IOException ex) {
+                    System.err.println("Failed to store upload: " + ex.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            // Writer is behind, losing a copy is better than slowing requests down
+            return false;
+        }
+    }
+
+    /**
+     * Write the upload under its content hash. An upload already stored only has its modification time
+     * refreshed, so retention counts from the last time it was uploaded.
+     *
+     * @return path of the stored upload
+     * **/
+    Path write(byte[] barCodeBytes) throws IOException {
+        String hash = sha256(barCodeBytes);
+        Path target = fileStorageLocation.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        if (Files.exists(target)) {
+            try {
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                deduplicated.incrementAndGet();
+                return target;
+            } catch (NoSuchFileException ex) {
+                // Swept in the meantime, write it again
+            }
+        }
+
+        Files.createDirectories(target.getParent());
+        // Only this thread writes, the temporary name cannot clash
+        Path temp = target.resolveSibling(hash + TEMP_SUFFIX);
+        Files.write(temp, barCodeBytes);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        if (maxBytes > 0 && totalBytes.addAndGet(barCodeBytes.length) > maxBytes
+                && sweepRequested.compareAndSet(false, true)) {
+            // Over the limit before the next scheduled sweep
+            sweeper.execute(this::sweepQuietly);
+        }
+        return target;
+    }
+
+    /**
+     * Delete uploads past the maximum age, then the least recently uploaded ones until the directory fits
+     * in the maximum size. Temporary files left by a crash are deleted too.
+     * **/
+    void sweep() throws IOException {
+        sweepRequested.set(false);
+        long now = System.currentTimeMillis();
+        List<StoredFile> files = new ArrayList<>();
+        Files.walkFileTree(fileStorageLocation, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                long modified = attributes.lastModifiedTime().toMillis();
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    if (now - modified > TEMP_MAX_AGE_MILLIS) {
+                        Files.deleteIfExists(file);
+                    }
+                } else if (maxAgeMillis > 0 && now - modified > maxAgeMillis) {
+                    Files.deleteIfExists(file);
+                } else {
+                    files.add(new StoredFile(file, modified, attributes.size()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                // Deleted while walking
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        long total = 0;
+        for (StoredFile file : files) {
+            total += file.size;
+        }
+        if (maxBytes > 0 && total > maxBytes) {
+            files.sort(Comparator.comparingLong(file -> file.modified));
+            for (int i = 0; i < files.size() && total > maxBytes; i++) {
+                Files.deleteIfExists(files.get(i).path);
+                total -= files.get(i).size;
+            }
+        }
+        totalBytes.set(total);
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (IOException ex) {
+            System.err.println("Failed to sweep " + fileStorageLocation + ": " + ex.getMessage());
+        }
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Uploads that were already stored when they came in again.
+     * **/
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    /**
+     * Block until the uploads queued so far are written, at most timeoutMillis.
+     * **/
+    void flush(long timeoutMillis) throws InterruptedException {
+        try {
+            // Single writer thread, so the marker runs after everything queued before it
+            writer.submit(() -> { }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException ex) {
+            // Best effort, the uploads are still written eventually
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        sweeper.shutdownNow();
+        writer.shutdown();
+    }
+
+    private static String sha256(byte[] bytes) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(ex);
+        }
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static final class StoredFile {
+        final Path path;
+        final long modified;
+        final long size;
+
+        StoredFile(Path path, long modified, long size) {
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
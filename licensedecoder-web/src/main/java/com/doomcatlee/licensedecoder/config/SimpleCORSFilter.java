@@ -0,0 +1,127 @@
+package com.doomcatlee.licensedecoder.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The only CORS layer of the application, configured by the cors.* properties.
+ *
+ * Runs ahead of Spring Security and the dispatcher: a preflight from an allowed origin is answered right here,
+ * with a Max-Age so browsers cache it instead of sending an OPTIONS before every upload.
+ *
+ *          (ex)
+ *              OPTIONS /decodeDriverLicenseBarcode
+ *              Origin: https://app.example.com
+ *              Access-Control-Request-Method: POST
+ *
+ *              200, Access-Control-Allow-Origin: https://app.example.com, Access-Control-Max-Age: 7200, ...
+ *
+ * Other requests from an allowed origin get the CORS headers and continue, so error responses such as a 401
+ * carry them as well. Requests from other origins get no CORS headers, their preflights a 403.
+ *
+ * No origin is allowed until cors.allowed-origins lists some. * is refused at startup while
+ * cors.allow-credentials is true, it would let any site make calls with the user's credentials.
+ * **/
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SimpleCORSFilter implements Filter {
+
+    private final Logger log = LoggerFactory.getLogger(SimpleCORSFilter.class);
+
+    private final boolean anyOrigin;
+    private final Set<String> allowedOrigins = new HashSet<>();
+    private final String allowedMethods;
+    private final String allowedHeaders; // null echoes the requested headers
+    private final String maxAge;
+    private final boolean allowCredentials;
+
+    @Autowired
+    public SimpleCORSFilter(CorsProperties corsProperties) {
+        for (String origin : corsProperties.getAllowedOrigins()) {
+            allowedOrigins.add(origin.trim().toLowerCase(Locale.ROOT));
+        }
+        this.anyOrigin = allowedOrigins.contains("*");
+        if (anyOrigin && corsProperties.isAllowCredentials()) {
+            throw new IllegalStateException(
+                    "cors.allowed-origins=* cannot be combined with cors.allow-credentials=true, list the origins");
+        }
+        this.allowedMethods = String.join(", ", corsProperties.getAllowedMethods());
+        this.allowedHeaders = corsProperties.getAllowedHeaders().contains("*")
+                ? null
+                : String.join(", ", corsProperties.getAllowedHeaders());
+        this.maxAge = Long.toString(corsProperties.getMaxAgeSeconds());
+        this.allowCredentials = corsProperties.isAllowCredentials();
+        log.info("SimpleCORSFilter init, allowed origins {}, preflights cached {}s", allowedOrigins, maxAge);
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        String origin = request.getHeader("Origin");
+        if (origin == null) {
+            // Not a cross-origin request
+            chain.doFilter(req, res);
+            return;
+        }
+
+        boolean preflight = "OPTIONS".equals(request.getMethod())
+                && request.getHeader("Access-Control-Request-Method") != null;
+        // The answer depends on Origin, shared caches must not hand it to another origin
+        response.addHeader("Vary", "Origin");
+        if (!isAllowed(origin)) {
+            if (preflight) {
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+            chain.doFilter(req, res);
+            return;
+        }
+
+        // Echo the origin rather than *, browsers reject * on requests with credentials
+        response.setHeader("Access-Control-Allow-Origin", origin);
+        if (allowCredentials) {
+            response.setHeader("Access-Control-Allow-Credentials", "true");
+        }
+
+        if (!preflight) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        response.setHeader("Access-Control-Allow-Methods", allowedMethods);
+        String requestHeaders = request.getHeader("Access-Control-Request-Headers");
+        String headers = allowedHeaders != null ? allowedHeaders : requestHeaders;
+        if (headers != null && !headers.isEmpty()) {
+            response.setHeader("Access-Control-Allow-Headers", headers);
+        }
+        response.setHeader("Access-Control-Max-Age", maxAge);
+        response.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    private boolean isAllowed(String origin) {
+        return anyOrigin || allowedOrigins.contains(origin.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
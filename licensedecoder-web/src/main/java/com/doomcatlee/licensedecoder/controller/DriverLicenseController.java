@@ -0,0 +1,219 @@
+package com.doomcatlee.licensedecoder.controller;
+
+import com.doomcatlee.licensedecoder.component.BatchDecodeComponent;
+import com.doomcatlee.licensedecoder.component.DecodeJob;
+import com.doomcatlee.licensedecoder.component.DecodeJobComponent;
+import com.doomcatlee.licensedecoder.component.DecodeMetrics;
+import com.doomcatlee.licensedecoder.component.DecodeProfile;
+import com.doomcatlee.licensedecoder.component.DecodeResultCache;
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import com.doomcatlee.licensedecoder.component.DriverLicenseJsonWriter;
+import com.doomcatlee.licensedecoder.config.FileStorageService;
+import com.doomcatlee.licensedecoder.handlers.AamvaElement;
+import io.swagger.annotations.ApiOperation;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+@RestController
+public class DriverLicenseController {
+    private static final Logger log = LoggerFactory.getLogger(DriverLicenseController.class);
+
+    @Autowired
+    FileStorageService fileStorageService;
+    @Autowired
+    DriverLicenseComponent driverLicenseComponent;
+    @Autowired
+    BatchDecodeComponent batchDecodeComponent;
+    @Autowired
+    DecodeJobComponent decodeJobComponent;
+
+    @RequestMapping(value = "/decodeDriverLicenseBarcode", method = RequestMethod.POST)
+    @ApiOperation(value = "", response = String.class)
+    public void uploadFile(@RequestParam("file") MultipartFile file,
+                           @RequestParam(value = "profile", required = false) String profile,
+                           @RequestParam(value = "fields", required = false) String fields,
+                           HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        DecodeProfile decodeProfile;
+        Set<AamvaElement> projection;
+        try {
+            decodeProfile = resolveProfile(profile);
+            projection = AamvaElement.parseFields(fields);
+        } catch (IllegalArgumentException ex) {
+            // Rejected before the upload is read
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            DriverLicenseJsonWriter.writeResult(ex.getMessage(), out);
+            out.flush();
+            return;
+        }
+        try {
+            DecodeMetrics metrics = driverLicenseComponent.getMetrics();
+            long start = System.nanoTime();
+            byte[] barCodeBytes = file.getBytes();
+            metrics.record(DecodeMetrics.Stage.UPLOAD, System.nanoTime() - start);
+            // Keeping a copy of the upload is opt-in and written in the background, decoding works from memory
+            if (fileStorageService.isEnabled()) {
+                start = System.nanoTime();
+                fileStorageService.storeFile(barCodeBytes);
+                metrics.record(DecodeMetrics.Stage.STORE, System.nanoTime() - start);
+            }
+            driverLicenseComponent.decodeDriverLicense(barCodeBytes, decodeProfile, projection, out);
+        } catch (Exception ex) {
+            log.debug("Failed to read the upload", ex);
+            driverLicenseComponent.getMetrics().recordFailure(DecodeMetrics.Failure.UPLOAD);
+            DriverLicenseJsonWriter.writeResult(ex.getMessage(), out);
+        }
+        out.flush();
+    }
+
+    @RequestMapping(value = "/decodeDriverLicenseBarcodes", method = RequestMethod.POST)
+    @ApiOperation(value = "Decode many barcode images, or ZIP archives of them, in one request", response = String.class)
+    public ResponseEntity<String> uploadFiles(@RequestParam("files") MultipartFile[] files,
+                                              @RequestParam(value = "profile", required = false) String profile,
+                                              @RequestParam(value = "fields", required = false) String fields) {
+        DecodeProfile decodeProfile;
+        Set<AamvaElement> projection;
+        try {
+            decodeProfile = resolveProfile(profile);
+            projection = AamvaElement.parseFields(fields);
+        } catch (IllegalArgumentException ex) {
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result(ex.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(batchDecodeComponent.decodeFiles(files, decodeProfile, projection),
+                    HttpStatus.OK);
+        } catch (BatchDecodeComponent.LimitExceededException ex) {
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result(ex.getMessage()),
+                    HttpStatus.PAYLOAD_TOO_LARGE);
+        } catch (Exception ex) {
+            log.debug("Failed to read the upload", ex);
+            driverLicenseComponent.getMetrics().recordFailure(DecodeMetrics.Failure.UPLOAD);
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result(ex.getMessage()), HttpStatus.OK);
+        }
+    }
+
+    @RequestMapping(value = "/decodeJobs", method = RequestMethod.POST)
+    @ApiOperation(value = "Queue a barcode image for decoding and return the job id", response = String.class)
+    public ResponseEntity<String> submitJob(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(value = "profile", required = false) String profile,
+                                            @RequestParam(value = "fields", required = false) String fields) {
+        DecodeProfile decodeProfile;
+        Set<AamvaElement> projection;
+        try {
+            decodeProfile = resolveProfile(profile);
+            projection = AamvaElement.parseFields(fields);
+        } catch (IllegalArgumentException ex) {
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result(ex.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            DecodeJob job = decodeJobComponent.submit(file.getBytes(), decodeProfile, projection);
+            if (job == null) {
+                return new ResponseEntity<>(DriverLicenseJsonWriter.result("Decode queue is full"),
+                        HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return new ResponseEntity<>(job.toJson(), HttpStatus.ACCEPTED);
+        } catch (Exception ex) {
+            log.debug("Failed to read the upload", ex);
+            driverLicenseComponent.getMetrics().recordFailure(DecodeMetrics.Failure.UPLOAD);
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result(ex.getMessage()),
+                    HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @RequestMapping(value = "/decodeJobs/{jobId}", method = RequestMethod.GET)
+    @ApiOperation(value = "Poll the status of a decode job, with the decoded data once it is done", response = String.class)
+    public ResponseEntity<String> getJob(@PathVariable("jobId") String jobId) {
+        DecodeJob job = decodeJobComponent.getJob(jobId);
+        if (job == null) {
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result("Job not found"),
+                    HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job.toJson(), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/parseDriverLicense", method = RequestMethod.POST, consumes = "text/plain")
+    @ApiOperation(value = "Parse raw AAMVA text read by a hardware scanner", response = String.class)
+    public ResponseEntity<String> parseBarcode(@RequestBody String barCode,
+                                               @RequestParam(value = "fields", required = false) String fields) {
+        try {
+            return new ResponseEntity<>(driverLicenseComponent.parseDriverLicense(barCode,
+                    AamvaElement.parseFields(fields)), HttpStatus.OK);
+        } catch (IllegalArgumentException ex) {
+            return new ResponseEntity<>(DriverLicenseJsonWriter.result(ex.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @RequestMapping(value = "/parseDriverLicenses", method = RequestMethod.POST)
+    @ApiOperation(value = "Parse newline-delimited AAMVA strings (one JSON string per line) into an NDJSON stream")
+    public void parseBarcodes(@RequestParam(value = "fields", required = false) String fields,
+                              HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Set<AamvaElement> projection;
+        try {
+            projection = AamvaElement.parseFields(fields);
+        } catch (IllegalArgumentException ex) {
+            // Rejected before any line is read, the body would otherwise be a stream of results
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(DriverLicenseJsonWriter.result(ex.getMessage()));
+            return;
+        }
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        BufferedReader in = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        driverLicenseComponent.parseDriverLicenses(in, out, projection);
+    }
+
+    @RequestMapping(value = "/decodeCacheStats", method = RequestMethod.GET)
+    @ApiOperation(value = "Hits, misses and size of the decoded result cache", response = String.class)
+    public String getCacheStats() {
+        DecodeResultCache cache = driverLicenseComponent.getResultCache();
+        if (cache == null) {
+            return DriverLicenseJsonWriter.result("Cache disabled");
+        }
+        return new JSONObject()
+                .put("hits", cache.getHits())
+                .put("misses", cache.getMisses())
+                .put("size", cache.size())
+                .toString();
+    }
+
+    @RequestMapping(value = "/decodeMetrics", method = RequestMethod.GET)
+    @ApiOperation(value = "Decode stage latencies, outcomes and upload sizes in the Prometheus text format")
+    public void getMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        driverLicenseComponent.getMetrics().writePrometheus(out);
+        out.flush();
+    }
+
+    // fast, balanced or thorough, falls back to decode.profile when not given
+    private DecodeProfile resolveProfile(String profile) {
+        return DecodeProfile.fromName(profile, driverLicenseComponent.getDefaultProfile());
+    }
+}
@@ -0,0 +1,122 @@
+package com.doomcatlee.licensedecoder.component;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchDecodeComponentTests {
+
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private DriverLicenseComponent driverLicenseComponent;
+    private BatchDecodeComponent batchDecodeComponent;
+
+    @After
+    public void shutdown() {
+        batchDecodeComponent.shutdown();
+        driverLicenseComponent.shutdown();
+    }
+
+    @Test
+    public void decodesArchivesWithinTheLimits() throws Exception {
+        batchDecodeComponent = component(3, 1, 2);
+        MultipartFile[] files = {
+                zip("scans.zip", new byte[MEGABYTE], new byte[MEGABYTE / 2]),
+                new MockMultipartFile("files", "front.png", "image/png", new byte[]{1, 2, 3})
+        };
+
+        JSONArray results = new JSONArray(batchDecodeComponent.decodeFiles(files, DecodeProfile.FAST));
+
+        assertEquals(3, results.length());
+        assertEquals("scans.zip/0.png", results.getJSONObject(0).getString("fileName"));
+        assertEquals("scans.zip/1.png", results.getJSONObject(1).getString("fileName"));
+        assertEquals("front.png", results.getJSONObject(2).getString("fileName"));
+        // Not barcodes, but every entry was read and decoded
+        assertEquals("Failed", results.getJSONObject(0).getString("result"));
+    }
+
+    @Test
+    public void rejectsAnEntryThatExpandsPastItsLimit() throws Exception {
+        batchDecodeComponent = component(3, 1, 2);
+        // Zeros compress about a thousand times, the archive itself is tiny
+        assertRejected(zip("bomb.zip", new byte[MEGABYTE + 1]), "bomb.zip/0.png expands to more than 1 MB");
+    }
+
+    @Test
+    public void rejectsArchivesThatExpandPastTheTotalLimit() throws Exception {
+        batchDecodeComponent = component(3, 1, 2);
+        assertRejected(zip("scans.zip", new byte[MEGABYTE], new byte[MEGABYTE], new byte[1]),
+                "ZIP archives expand to more than 2 MB");
+    }
+
+    @Test
+    public void rejectsArchivesWithTooManyEntries() throws Exception {
+        batchDecodeComponent = component(3, 1, 2);
+        assertRejected(zip("scans.zip", new byte[1], new byte[1], new byte[1], new byte[1]),
+                "ZIP archives hold more than 3 entries");
+    }
+
+    @Test
+    public void stopsTheBatchWhenInterrupted() throws Exception {
+        batchDecodeComponent = component(3, 1, 2);
+        MultipartFile[] files = {
+                new MockMultipartFile("files", "front.png", "image/png", new byte[]{1, 2, 3}),
+                new MockMultipartFile("files", "back.png", "image/png", new byte[]{1, 2, 3})
+        };
+        Thread.currentThread().interrupt();
+        try {
+            batchDecodeComponent.decodeFiles(files, DecodeProfile.FAST);
+            fail("Expected the batch to stop");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getCause() instanceof InterruptedException);
+        } finally {
+            // Clears the flag for the next tests
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    private void assertRejected(MultipartFile zip, String message) {
+        MultipartFile[] files = {new MockMultipartFile("files", "front.png", "image/png", new byte[]{1, 2, 3}), zip};
+        try {
+            batchDecodeComponent.decodeFiles(files, DecodeProfile.FAST);
+            fail("Expected the batch to be rejected");
+        } catch (BatchDecodeComponent.LimitExceededException ex) {
+            assertEquals(message, ex.getMessage());
+        }
+    }
+
+    private BatchDecodeComponent component(int maxEntries, long maxEntryMegabytes, long maxTotalMegabytes) {
+        DecodeProperties decodeProperties = new DecodeProperties();
+        decodeProperties.setCacheMaxEntries(0);
+        decodeProperties.setRaceParallelism(0);
+        decodeProperties.setBatchThreads(2);
+        decodeProperties.setBatchMaxEntries(maxEntries);
+        decodeProperties.setBatchMaxEntryMegabytes(maxEntryMegabytes);
+        decodeProperties.setBatchMaxTotalMegabytes(maxTotalMegabytes);
+        driverLicenseComponent = new DriverLicenseComponent(decodeProperties);
+        return new BatchDecodeComponent(driverLicenseComponent, decodeProperties);
+    }
+
+    private static MultipartFile zip(String name, byte[]... entries) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i++) {
+                zip.putNextEntry(new ZipEntry(i + ".png"));
+                zip.write(entries[i]);
+                zip.closeEntry();
+            }
+        }
+        assertTrue(bytes.size() < MEGABYTE / 100);
+        return new MockMultipartFile("files", name, "application/zip", bytes.toByteArray());
+    }
+}
@@ -0,0 +1,78 @@
+package com.doomcatlee.licensedecoder.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileStorageServiceTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storesUploadsOnceUnderTheirContentHash() throws Exception {
+        FileStorageService fileStorageService = new FileStorageService(properties(1));
+        byte[] upload = "image.jpg".getBytes("UTF-8");
+
+        assertTrue(fileStorageService.storeFile(upload));
+        assertTrue(fileStorageService.storeFile(upload.clone()));
+        assertTrue(fileStorageService.storeFile("other.jpg".getBytes("UTF-8")));
+        fileStorageService.flush(5000);
+
+        // sha256 of "image.jpg"
+        Path stored = folder.getRoot().toPath().resolve("e3").resolve("1d")
+                .resolve("e31df6ca67b7e6390cb4e019f9a614ec44caafec9956f6b46eb2392846213809");
+        assertArrayEquals(upload, Files.readAllBytes(stored));
+        assertEquals(2, storedFiles().size());
+        assertEquals(1, fileStorageService.getDeduplicated());
+        fileStorageService.shutdown();
+    }
+
+    @Test
+    public void sweepsExpiredAndLeastRecentlyUploadedFiles() throws Exception {
+        FileStorageService fileStorageService = new FileStorageService(properties(1));
+        long now = System.currentTimeMillis();
+
+        Path expired = fileStorageService.write(new byte[10]);
+        Files.setLastModifiedTime(expired, FileTime.fromMillis(now - TimeUnit.HOURS.toMillis(2)));
+        Path oldest = fileStorageService.write(new byte[600 * 1024]);
+        Files.setLastModifiedTime(oldest, FileTime.fromMillis(now - 2000));
+        Path newest = fileStorageService.write(new byte[600 * 1024 + 1]);
+
+        fileStorageService.sweep();
+
+        assertFalse(Files.exists(expired));
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(newest));
+        assertEquals(600 * 1024 + 1, fileStorageService.getTotalBytes());
+        fileStorageService.shutdown();
+    }
+
+    private FileStorageProperties properties(long maxMegabytes) {
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setUploadDir(folder.getRoot().getPath());
+        fileStorageProperties.setStoreUploads(true);
+        fileStorageProperties.setMaxAgeHours(1);
+        fileStorageProperties.setMaxMegabytes(maxMegabytes);
+        return fileStorageProperties;
+    }
+
+    private List<Path> storedFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.doomcatlee.licensedecoder.config;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SimpleCORSFilterTests {
+
+    @Test
+    public void answersPreflightWithoutRunningTheChain() throws Exception {
+        SimpleCORSFilter filter = new SimpleCORSFilter(properties("https://app.example.com"));
+        MockHttpServletRequest request = preflight("https://app.example.com");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        assertEquals("https://app.example.com", response.getHeader("Access-Control-Allow-Origin"));
+        assertEquals("true", response.getHeader("Access-Control-Allow-Credentials"));
+        assertEquals("GET, POST, OPTIONS, DELETE", response.getHeader("Access-Control-Allow-Methods"));
+        assertEquals("7200", response.getHeader("Access-Control-Max-Age"));
+        assertEquals("Origin", response.getHeader("Vary"));
+    }
+
+    @Test
+    public void rejectsPreflightFromOtherOrigins() throws Exception {
+        SimpleCORSFilter filter = new SimpleCORSFilter(properties("https://app.example.com"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(preflight("https://evil.example.com"), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(403, response.getStatus());
+        assertNull(response.getHeader("Access-Control-Allow-Origin"));
+    }
+
+    @Test
+    public void passesOtherRequestsOnWithHeaders() throws Exception {
+        CorsProperties corsProperties = properties("*");
+        corsProperties.setAllowedHeaders(Arrays.asList("*"));
+        corsProperties.setAllowCredentials(false);
+        SimpleCORSFilter filter = new SimpleCORSFilter(corsProperties);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/decodeDriverLicenseBarcode");
+        request.addHeader("Origin", "https://any.example.com");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        assertNotNull(chain.getRequest());
+        assertEquals("https://any.example.com", response.getHeader("Access-Control-Allow-Origin"));
+        assertNull(response.getHeader("Access-Control-Allow-Credentials"));
+        assertNull(response.getHeader("Access-Control-Max-Age"));
+
+        // * echoes the requested headers
+        response = new MockHttpServletResponse();
+        filter.doFilter(preflight("https://any.example.com"), response, new MockFilterChain());
+        assertEquals("authorization, content-type", response.getHeader("Access-Control-Allow-Headers"));
+
+        // Same-origin requests are left alone
+        response = new MockHttpServletResponse();
+        chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/decodeMetrics"), response, chain);
+        assertNotNull(chain.getRequest());
+        assertNull(response.getHeader("Access-Control-Allow-Origin"));
+    }
+
+    @Test
+    public void allowsNoOriginByDefault() throws Exception {
+        SimpleCORSFilter filter = new SimpleCORSFilter(new CorsProperties());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(preflight("https://app.example.com"), response, new MockFilterChain());
+
+        assertEquals(403, response.getStatus());
+        assertNull(response.getHeader("Access-Control-Allow-Origin"));
+    }
+
+    @Test
+    public void refusesAnyOriginWithCredentials() {
+        CorsProperties corsProperties = properties("https://app.example.com", "*");
+        corsProperties.setAllowCredentials(true);
+        try {
+            new SimpleCORSFilter(corsProperties);
+            fail("Expected * with credentials to be refused");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage().contains("cors.allow-credentials"));
+        }
+    }
+
+    private static CorsProperties properties(String... allowedOrigins) {
+        CorsProperties corsProperties = new CorsProperties();
+        corsProperties.setAllowedOrigins(Arrays.asList(allowedOrigins));
+        return corsProperties;
+    }
+
+    private static MockHttpServletRequest preflight(String origin) {
+        MockHttpServletRequest request = new MockHttpServletRequest("OPTIONS", "/decodeDriverLicenseBarcode");
+        request.addHeader("Origin", origin);
+        request.addHeader("Access-Control-Request-Method", "POST");
+        request.addHeader("Access-Control-Request-Headers", "authorization, content-type");
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+package com.doomcatlee.licensedecoder.controller;
+
+import com.doomcatlee.licensedecoder.component.DriverLicenseComponent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.fileUpload;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class DriverLicenseControllerTests {
+
+    private static final String BARCODE = "@\n\u001e\rANSI 636029080002DL00410045ZO00860010"
+            + "DLDAQ123\nDCSLEE\nDACDONG\nDAU070 IN\nDBB08211993\rZOZOAEXAMPLE\r";
+
+    private DriverLicenseComponent driverLicenseComponent;
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        driverLicenseComponent = new DriverLicenseComponent();
+        DriverLicenseController controller = new DriverLicenseController();
+        controller.driverLicenseComponent = driverLicenseComponent;
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @After
+    public void tearDown() {
+        driverLicenseComponent.close();
+    }
+
+    @Test
+    public void parsesEachLineOfTheStream() throws Exception {
+        mockMvc.perform(post("/parseDriverLicenses").param("fields", "lastName")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("\"" + BARCODE.replace("\n", "\\n").replace("\r", "\\r").replace("\u001e", "\\u001e")
+                        + "\"\n\"garbage\"\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"lastName\":\"LEE\"}\n{\"result\":\"Failed\"}\n"));
+    }
+
+    @Test
+    public void rejectsUnknownFieldsOfTheStream() throws Exception {
+        mockMvc.perform(post("/parseDriverLicenses").param("fields", "dob,shoeSize")
+                .contentType(MediaType.TEXT_PLAIN).content("\"ignored\"\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("{\"result\":\"Unknown field: shoeSize\"}"));
+    }
+
+    @Test
+    public void rejectsFieldsThatAreNeverReturned() throws Exception {
+        mockMvc.perform(post("/parseDriverLicense").param("fields", "country")
+                .contentType(MediaType.TEXT_PLAIN).content(BARCODE))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("{\"result\":\"Field is not returned: country\"}"));
+    }
+
+    @Test
+    public void rejectsUnknownFieldsOfAnUpload() throws Exception {
+        mockMvc.perform(fileUpload("/decodeDriverLicenseBarcode")
+                .file(new MockMultipartFile("file", new byte[]{1, 2, 3})).param("fields", "shoeSize"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("{\"result\":\"Unknown field: shoeSize\"}"));
+    }
+
+    @Test
+    public void rejectsUnknownProfilesOfABatch() throws Exception {
+        mockMvc.perform(fileUpload("/decodeDriverLicenseBarcodes")
+                .file(new MockMultipartFile("files", new byte[]{1, 2, 3})).param("profile", "fastest"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("{\"result\":\"Unknown decode profile: fastest\"}"));
+    }
+
+    @Test
+    public void rejectsUnknownFieldsOfAJob() throws Exception {
+        mockMvc.perform(fileUpload("/decodeJobs")
+                .file(new MockMultipartFile("file", new byte[]{1, 2, 3})).param("fields", "country"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("{\"result\":\"Field is not returned: country\"}"));
+    }
+}